@@ -0,0 +1,44 @@
+package os.org;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-frame pacing decision as the reader and presenter make it: the frame's
+ * timestamp, its wait against the clock and the drop test. Clock positions
+ * cycle through early, on time and late so no branch is always taken.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FramePacingBenchmark {
+    @Param({"23.976", "29.97", "60"})
+    public double frameRate;
+
+    @Param({"1.0", "2.0"})
+    public double playbackRate;
+
+    private long frameIndex;
+
+    @Benchmark
+    public boolean paceFrame() {
+        long n = frameIndex++;
+        long frameTimeMs = FramePacing.frameTimeMs(120_000, n, frameRate);
+        long clockMs = frameTimeMs + (n % 3 - 1) * 50;
+        long waitNs = FramePacing.waitNs(frameTimeMs, clockMs);
+        return FramePacing.shouldDrop(waitNs, FramePacing.frameDurationNs(frameRate, playbackRate));
+    }
+}
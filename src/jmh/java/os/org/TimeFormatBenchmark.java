@@ -0,0 +1,57 @@
+package os.org;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the time label text, formatted on every position update (the
+ * control bar twice per update, current and total) and for each preview.
+ * Positions under and over an hour take different format strings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeFormatBenchmark {
+    @Param({"83000", "5025000"})
+    public long positionMs;
+
+    private SimpleDuration duration;
+
+    @Setup
+    public void setup() {
+        duration = new SimpleDuration(positionMs);
+    }
+
+    @Benchmark
+    public String simpleDurationToString() {
+        return duration.toString();
+    }
+
+    @Benchmark
+    public String controlBarFormatTime() {
+        return MediaControlBar.formatTime(duration);
+    }
+
+    /**
+     * Both labels of one control bar update, including the wrapper allocation
+     */
+    @Benchmark
+    public String controlBarUpdate() {
+        return MediaControlBar.formatTime(new SimpleDuration(positionMs)) + " / "
+            + MediaControlBar.formatTime(duration);
+    }
+}
@@ -0,0 +1,139 @@
+package os.org;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pipe bandwidth and conversion cost of the bgr24 path against the yuv420p path,
+ * with the original rgb24-to-int pixel loop as the baseline both replaced.
+ *
+ * Each op moves one frame from a "pipe" buffer into the raster the way the
+ * reader does. The {@code pipeBytes} counter is reported as bytes/s, i.e. the
+ * pipe bandwidth needed to sustain that frame rate; ops/s is the conversion
+ * throughput in frames per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class YuvConversionBenchmark {
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String resolution;
+
+    private int width;
+    private int height;
+    private byte[] bgrPipe;
+    private byte[] yuvPipe;
+    private byte[] yuvFrame;
+    private byte[] raster;
+    private int[] intPixels;
+    private BufferedImage intImage;
+    private final YuvConverter converter = new YuvConverter();
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class PipeCounters {
+        public long pipeBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pipeBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        String[] size = resolution.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        Random random = new Random(42);
+        bgrPipe = new byte[width * height * 3];
+        yuvPipe = new byte[YuvConverter.frameSize(width, height)];
+        yuvFrame = new byte[yuvPipe.length];
+        raster = new byte[width * height * 3];
+        intPixels = new int[width * height];
+        intImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        random.nextBytes(bgrPipe);
+        random.nextBytes(yuvPipe);
+    }
+
+    /**
+     * Original path: a new TYPE_INT_RGB image and int[] per frame, packed
+     * pixel by pixel from rgb24 and copied in with setRGB
+     */
+    @Benchmark
+    public BufferedImage legacyRgb24ToInt(PipeCounters counters) {
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = new int[width * height];
+        packRgb24(bgrPipe, pixels);
+        frame.setRGB(0, 0, width, height, pixels, 0, width);
+        counters.pipeBytes += bgrPipe.length;
+        return frame;
+    }
+
+    /**
+     * The original loop and setRGB alone, with the image and array reused
+     */
+    @Benchmark
+    public BufferedImage legacyRgb24ToIntReused() {
+        packRgb24(bgrPipe, intPixels);
+        intImage.setRGB(0, 0, width, height, intPixels, 0, width);
+        return intImage;
+    }
+
+    private static void packRgb24(byte[] rgb, int[] pixels) {
+        for (int i = 0; i < rgb.length; i += 3) {
+            int r = rgb[i] & 0xFF;
+            int g = rgb[i + 1] & 0xFF;
+            int b = rgb[i + 2] & 0xFF;
+            pixels[i / 3] = (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * Current path: bgr24 read straight into the raster, no conversion
+     */
+    @Benchmark
+    public byte[] bgr24Transfer(PipeCounters counters) {
+        System.arraycopy(bgrPipe, 0, raster, 0, bgrPipe.length);
+        counters.pipeBytes += bgrPipe.length;
+        return raster;
+    }
+
+    /**
+     * yuv420p read into the planar buffer and converted on the ForkJoin pool
+     */
+    @Benchmark
+    public byte[] yuv420pTransferAndConvert(PipeCounters counters) {
+        System.arraycopy(yuvPipe, 0, yuvFrame, 0, yuvPipe.length);
+        converter.convert(yuvFrame, raster, width, height, YuvConverter.Matrix.BT709);
+        counters.pipeBytes += yuvPipe.length;
+        return raster;
+    }
+
+    /**
+     * Single-threaded conversion, to isolate the per-core vectorized loop
+     */
+    @Benchmark
+    public byte[] yuv420pConvertSingleThread() {
+        YuvConverter.convertRows(yuvPipe, raster, width, height, YuvConverter.Matrix.BT709, 0, height);
+        return raster;
+    }
+}
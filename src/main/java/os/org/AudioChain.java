@@ -0,0 +1,84 @@
+package os.org;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Ordered list of {@link AudioProcessor}s applied in place to blocks of
+ * 16-bit little-endian PCM on the audio thread. The block is read through a
+ * reused ShortBuffer view into a reused float work buffer, processed, and
+ * written back; nothing is allocated once the buffers have reached the block
+ * size.
+ */
+public class AudioChain {
+    private final int channels;
+    private final List<AudioProcessor> processors = new CopyOnWriteArrayList<>();
+    private byte[] viewedArray;
+    private ShortBuffer view;
+    private float[] work = new float[0];
+
+    public AudioChain(int channels) {
+        this.channels = channels;
+    }
+
+    public AudioChain add(AudioProcessor processor) {
+        processors.add(processor);
+        return this;
+    }
+
+    public List<AudioProcessor> getProcessors() {
+        return processors;
+    }
+
+    public void reset() {
+        for (AudioProcessor processor : processors) {
+            processor.reset();
+        }
+    }
+
+    public boolean isActive() {
+        for (AudioProcessor processor : processors) {
+            if (processor.isActive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run the active stages over {@code length} bytes of {@code data}
+     */
+    public void process(byte[] data, int length) {
+        if (!isActive()) {
+            return;
+        }
+        int samples = length / 2;
+        int frames = samples / channels;
+        samples = frames * channels;
+        if (work.length < samples) {
+            work = new float[samples];
+        }
+        if (data != viewedArray) {
+            view = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            viewedArray = data;
+        }
+
+        ShortBuffer pcm = view;
+        float[] buffer = work;
+        for (int i = 0; i < samples; i++) {
+            buffer[i] = pcm.get(i) * (1f / 32768f);
+        }
+        for (AudioProcessor processor : processors) {
+            if (processor.isActive()) {
+                processor.process(buffer, frames, channels);
+            }
+        }
+        for (int i = 0; i < samples; i++) {
+            int s = Math.round(buffer[i] * 32768f);
+            pcm.put(i, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s)));
+        }
+    }
+}
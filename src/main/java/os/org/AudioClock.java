@@ -0,0 +1,163 @@
+package os.org;
+
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Master clock driven by the number of frames the audio line has played.
+ *
+ * After a reset the clock holds at the start position until the audio thread
+ * attaches its line, so video never runs ahead of audio that has not started
+ * yet. If no line is attached within {@link #ATTACH_TIMEOUT_MS} (no audio
+ * stream, no audio device) or the audio stream ends first, the clock carries on
+ * from its current position on the wall clock.
+ *
+ * At playback rates other than 1 the line plays time-stretched audio, so each
+ * second of played frames advances the media position by {@code rate} seconds.
+ *
+ * While held, e.g. during a pause that keeps the decoder and the stopped line
+ * alive, the clock stays at the position it had when it was held.
+ */
+public class AudioClock implements MediaClock {
+    private static final long ATTACH_TIMEOUT_MS = 1000;
+    // Extra output latency for mixers whose frame position counts frames written rather than played
+    private static final long OUTPUT_LATENCY_MS = Long.getLong("videoplayer.audio.latencyMs", 0L);
+
+    private final SystemClock fallback = new SystemClock();
+    private volatile SourceDataLine line;
+    private volatile long baseFrame;
+    private volatile float frameRate;
+    private volatile long basePositionMs;
+    private volatile long resetNanos = System.nanoTime();
+    private volatile boolean fallbackActive = false;
+    private volatile int generation = 0;
+    private volatile double rate = 1.0;
+    private volatile boolean held = false;
+    private volatile long heldPositionMs;
+
+    @Override
+    public long getPositionMs() {
+        if (held) {
+            return heldPositionMs;
+        }
+        SourceDataLine current = line;
+        if (current != null) {
+            long positionMs = linePositionMs(current) - (long) (OUTPUT_LATENCY_MS * rate);
+            return Math.max(basePositionMs, positionMs);
+        }
+        if (fallbackActive) {
+            return fallback.getPositionMs();
+        }
+        if ((System.nanoTime() - resetNanos) / 1_000_000 < ATTACH_TIMEOUT_MS) {
+            return basePositionMs;
+        }
+        synchronized (this) {
+            if (line == null && !fallbackActive) {
+                System.out.println("[Clock] No audio, using wall clock");
+                fallback.reset(basePositionMs);
+                fallbackActive = true;
+            }
+        }
+        return getPositionMs();
+    }
+
+    private long linePositionMs(SourceDataLine current) {
+        long playedFrames = current.getLongFramePosition() - baseFrame;
+        return basePositionMs + (long) (playedFrames * 1000.0 / frameRate * rate);
+    }
+
+    @Override
+    public synchronized void setRate(double rate) {
+        SourceDataLine current = line;
+        if (current != null) {
+            // Rebase without the latency correction, which getPositionMs applies again
+            long positionMs = linePositionMs(current);
+            baseFrame = current.getLongFramePosition();
+            basePositionMs = positionMs;
+        }
+        this.rate = rate;
+        fallback.setRate(rate);
+    }
+
+    @Override
+    public synchronized void reset(long positionMs) {
+        generation++;
+        held = false;
+        line = null;
+        fallbackActive = false;
+        basePositionMs = positionMs;
+        resetNanos = System.nanoTime();
+    }
+
+    /**
+     * Token identifying the current reset; audio threads capture it when they
+     * start so that a thread from before a seek cannot attach or detach
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drive the clock from a started line whose first frame is the reset position
+     */
+    public void attach(SourceDataLine audioLine, int generation) {
+        attach(audioLine, generation, audioLine.getLongFramePosition());
+    }
+
+    /**
+     * Drive the clock from a line on which the reset position is played at
+     * {@code startFrame}, e.g. after audio still queued from a previous item;
+     * the clock holds until the line gets there
+     */
+    public synchronized void attach(SourceDataLine audioLine, int generation, long startFrame) {
+        if (generation != this.generation) {
+            return;
+        }
+        baseFrame = startFrame;
+        frameRate = audioLine.getFormat().getFrameRate();
+        fallbackActive = false;
+        line = audioLine;
+    }
+
+    /**
+     * Audio ended or failed: continue from the current position on the wall clock
+     */
+    public synchronized void detach(int generation) {
+        if (generation != this.generation || fallbackActive) {
+            return;
+        }
+        fallback.reset(getPositionMs());
+        line = null;
+        fallbackActive = true;
+    }
+
+    /**
+     * Stop at the current position until {@link #resume()}
+     */
+    public synchronized void hold() {
+        if (!held) {
+            heldPositionMs = getPositionMs();
+            held = true;
+        }
+    }
+
+    /**
+     * Continue from the held position. A line-driven clock picks up from the
+     * line, which must have been stopped while held; the wall clock and the
+     * attach timeout restart from now.
+     */
+    public synchronized void resume() {
+        if (!held) {
+            return;
+        }
+        held = false;
+        if (fallbackActive) {
+            fallback.reset(heldPositionMs);
+        } else if (line == null) {
+            resetNanos = System.nanoTime();
+        }
+    }
+
+    public boolean isAudioDriven() {
+        return line != null;
+    }
+}
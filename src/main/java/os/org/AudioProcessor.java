@@ -0,0 +1,23 @@
+package os.org;
+
+/**
+ * One stage of the {@link AudioChain}. Works in place on interleaved float
+ * samples in [-1, 1] and must not allocate per block.
+ */
+public interface AudioProcessor {
+    void process(float[] samples, int frames, int channels);
+
+    /**
+     * Whether the stage currently changes the signal; the chain skips
+     * inactive stages and does no conversion at all if none is active
+     */
+    default boolean isActive() {
+        return true;
+    }
+
+    /**
+     * Clear filter state, e.g. after a seek
+     */
+    default void reset() {
+    }
+}
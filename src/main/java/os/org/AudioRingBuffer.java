@@ -0,0 +1,90 @@
+package os.org;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bounded byte ring between the thread pumping PCM out of ffmpeg and the
+ * thread writing it to the audio line. Writers block while it is full,
+ * readers while it is empty; after {@link #close()} readers drain what is
+ * left and then see end of stream, after {@link #abort()} they see it at once.
+ */
+public class AudioRingBuffer extends InputStream {
+    private final byte[] buffer;
+    private int readPos = 0;
+    private int size = 0;
+    private boolean closed = false;
+
+    public AudioRingBuffer(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public synchronized void write(byte[] data, int off, int len) throws InterruptedException {
+        while (len > 0) {
+            while (size == buffer.length && !closed) {
+                wait();
+            }
+            if (closed) {
+                return;
+            }
+            int writePos = (readPos + size) % buffer.length;
+            int chunk = Math.min(len, Math.min(buffer.length - size, buffer.length - writePos));
+            System.arraycopy(data, off, buffer, writePos, chunk);
+            size += chunk;
+            off += chunk;
+            len -= chunk;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized int read(byte[] data, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        try {
+            while (size == 0 && !closed) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+        if (size == 0) {
+            return -1;
+        }
+        int chunk = Math.min(len, Math.min(size, buffer.length - readPos));
+        System.arraycopy(buffer, readPos, data, off, chunk);
+        readPos = (readPos + chunk) % buffer.length;
+        size -= chunk;
+        notifyAll();
+        return chunk;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public synchronized int available() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Close and drop whatever is still buffered, so that audio decoded for a
+     * discarded position is never played
+     */
+    public synchronized void abort() {
+        size = 0;
+        readPos = 0;
+        close();
+    }
+}
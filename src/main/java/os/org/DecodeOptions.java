@@ -0,0 +1,164 @@
+package os.org;
+
+/**
+ * What a {@link DecoderSession} should decode: start position, output frame
+ * size, pixel format and rate, and whether to produce audio as well
+ */
+public class DecodeOptions {
+    /**
+     * Raw video formats the decoder can write to the pipe
+     */
+    public enum PixelFormat {
+        /** Packed, matches TYPE_3BYTE_BGR rasters byte for byte */
+        BGR24("bgr24"),
+        /** Planar 4:2:0, half the pipe bandwidth, converted by {@link YuvConverter} */
+        YUV420P("yuv420p");
+
+        private final String ffmpegName;
+
+        PixelFormat(String ffmpegName) {
+            this.ffmpegName = ffmpegName;
+        }
+
+        public String getFfmpegName() {
+            return ffmpegName;
+        }
+
+        public int frameSize(int width, int height) {
+            return this == YUV420P ? YuvConverter.frameSize(width, height) : width * height * 3;
+        }
+
+        /**
+         * Format from the {@code videoplayer.pixfmt} property, bgr24 by default
+         */
+        public static PixelFormat configured() {
+            String name = System.getProperty("videoplayer.pixfmt", "bgr24");
+            return name.equalsIgnoreCase("yuv420p") ? YUV420P : BGR24;
+        }
+    }
+
+    private long startMs = 0;
+    private long keyframeMs = -1;
+    private int videoStreamIndex = -1;
+    private int width = 1280;
+    private int height = 720;
+    private PixelFormat pixelFormat = PixelFormat.BGR24;
+    private double frameRate = 30.0;
+    private boolean audio = true;
+    private boolean skipNonReference = false;
+
+    /**
+     * Position to start at; when a keyframe at or before it is known ffmpeg
+     * starts demuxing exactly there and trims up to the target itself
+     */
+    public DecodeOptions startAt(long startMs, long keyframeMs) {
+        this.startMs = startMs;
+        this.keyframeMs = keyframeMs;
+        return this;
+    }
+
+    /**
+     * Absolute index of the video stream to decode, as probed; by default the
+     * first video stream, which may be attached cover art
+     */
+    public DecodeOptions videoStream(int index) {
+        this.videoStreamIndex = index;
+        return this;
+    }
+
+    public DecodeOptions size(int width, int height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public DecodeOptions pixelFormat(PixelFormat pixelFormat) {
+        this.pixelFormat = pixelFormat;
+        return this;
+    }
+
+    public DecodeOptions frameRate(double frameRate) {
+        this.frameRate = frameRate;
+        return this;
+    }
+
+    public DecodeOptions audio(boolean audio) {
+        this.audio = audio;
+        return this;
+    }
+
+    /**
+     * Let the decoder skip frames no other frame depends on, for fast playback
+     * where most decoded frames would be dropped anyway
+     */
+    public DecodeOptions skipNonReference(boolean skip) {
+        this.skipNonReference = skip;
+        return this;
+    }
+
+    public long getStartMs() {
+        return startMs;
+    }
+
+    public long getKeyframeMs() {
+        return keyframeMs;
+    }
+
+    public int getVideoStreamIndex() {
+        return videoStreamIndex;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public PixelFormat getPixelFormat() {
+        return pixelFormat;
+    }
+
+    /**
+     * Bytes of one frame on the pipe in the chosen pixel format
+     */
+    public int getFrameSize() {
+        return pixelFormat.frameSize(width, height);
+    }
+
+    public double getFrameRate() {
+        return frameRate;
+    }
+
+    public boolean hasAudio() {
+        return audio;
+    }
+
+    public boolean isSkipNonReference() {
+        return skipNonReference;
+    }
+
+    /**
+     * Same settings from another start position
+     */
+    public DecodeOptions copyAt(long startMs, long keyframeMs) {
+        return new DecodeOptions()
+            .startAt(startMs, keyframeMs)
+            .videoStream(videoStreamIndex)
+            .size(width, height)
+            .pixelFormat(pixelFormat)
+            .frameRate(frameRate)
+            .audio(audio)
+            .skipNonReference(skipNonReference);
+    }
+
+    /**
+     * True if both decode to the same frames and audio, wherever they start
+     */
+    public boolean sameOutput(DecodeOptions other) {
+        return videoStreamIndex == other.videoStreamIndex
+            && width == other.width && height == other.height && pixelFormat == other.pixelFormat
+            && frameRate == other.frameRate && audio == other.audio && skipNonReference == other.skipNonReference;
+    }
+}
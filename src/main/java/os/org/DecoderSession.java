@@ -0,0 +1,209 @@
+package os.org;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One ffmpeg process that opens, probes, demuxes and seeks the input once and
+ * decodes both streams from the same position.
+ *
+ * Raw video (bgr24 or yuv420p) goes to stdout. s16le audio goes to a loopback TCP
+ * connection, which works the same on Windows and Linux where an extra pipe
+ * descriptor or a named FIFO would not. A pump thread moves the PCM into a
+ * ring buffer large enough that ffmpeg never blocks on audio while the video
+ * queue still has room, so a full video queue cannot starve the audio clock.
+ */
+public class DecoderSession {
+    public static final float AUDIO_SAMPLE_RATE = 44100;
+    public static final int AUDIO_CHANNELS = 2;
+    private static final int AUDIO_BUFFER_SECONDS = 10;
+    /** Size of the audio ring each session with audio allocates */
+    public static final int AUDIO_BUFFER_BYTES = (int) AUDIO_SAMPLE_RATE * AUDIO_CHANNELS * 2 * AUDIO_BUFFER_SECONDS;
+    private static final int ACCEPT_TIMEOUT_MS = 5000;
+
+    private final DecodeOptions options;
+    private final Process process;
+    private final ServerSocket audioServer;
+    private final AudioRingBuffer audioBuffer;
+    private final Thread audioPump;
+    private volatile Socket audioSocket;
+
+    private DecoderSession(DecodeOptions options, Process process, ServerSocket audioServer) {
+        this.options = options;
+        this.process = process;
+        this.audioServer = audioServer;
+        if (audioServer != null) {
+            this.audioBuffer = new AudioRingBuffer(AUDIO_BUFFER_BYTES);
+            this.audioPump = new Thread(this::pumpAudio, "FFmpeg-AudioPump");
+            this.audioPump.setDaemon(true);
+            this.audioPump.start();
+        } else {
+            this.audioBuffer = null;
+            this.audioPump = null;
+        }
+    }
+
+    /**
+     * Spawn ffmpeg for the given file
+     */
+    public static DecoderSession start(File ffmpegBinary, String videoPath, DecodeOptions options) throws IOException {
+        ServerSocket audioServer = null;
+        if (options.hasAudio()) {
+            audioServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            audioServer.setSoTimeout(ACCEPT_TIMEOUT_MS);
+        }
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(ffmpegBinary.getAbsolutePath());
+
+        String videoFilter = "scale=" + options.getWidth() + ":" + options.getHeight();
+        String audioFilter = null;
+        long startMs = options.getStartMs();
+        long keyframeMs = options.getKeyframeMs();
+        if (keyframeMs >= 0 && startMs > 0) {
+            // Start demuxing exactly at the preceding keyframe and drop what lies
+            // before the target in the filter graphs, before it is scaled,
+            // converted or written out
+            double offset = (startMs - keyframeMs) / 1000.0;
+            cmd.add("-ss");
+            cmd.add(String.valueOf(keyframeMs / 1000.0));
+            cmd.add("-noaccurate_seek");
+            videoFilter = "trim=start=" + offset + ",setpts=PTS-STARTPTS," + videoFilter;
+            audioFilter = "atrim=start=" + offset + ",asetpts=PTS-STARTPTS";
+        } else if (startMs > 0) {
+            cmd.add("-ss");
+            cmd.add(String.valueOf(startMs / 1000.0));
+        }
+
+        if (options.isSkipNonReference()) {
+            cmd.add("-skip_frame");
+            cmd.add("nonref");
+        }
+        cmd.add("-i");
+        cmd.add(videoPath);
+
+        // Output 1: video on stdout
+        cmd.add("-map");
+        cmd.add(options.getVideoStreamIndex() >= 0 ? "0:" + options.getVideoStreamIndex() : "0:v:0");
+        cmd.add("-f");
+        cmd.add("rawvideo");
+        cmd.add("-pix_fmt");
+        cmd.add(options.getPixelFormat().getFfmpegName());
+        cmd.add("-vf");
+        cmd.add(videoFilter);
+        cmd.add("-r");
+        cmd.add(String.valueOf(options.getFrameRate()));
+        cmd.add("pipe:1");
+
+        // Output 2: audio over loopback TCP
+        if (audioServer != null) {
+            cmd.add("-map");
+            cmd.add("0:a:0");
+            cmd.add("-f");
+            cmd.add("s16le");
+            cmd.add("-acodec");
+            cmd.add("pcm_s16le");
+            cmd.add("-ar");
+            cmd.add(String.valueOf((int) AUDIO_SAMPLE_RATE));
+            cmd.add("-ac");
+            cmd.add(String.valueOf(AUDIO_CHANNELS));
+            if (audioFilter != null) {
+                cmd.add("-af");
+                cmd.add(audioFilter);
+            }
+            cmd.add("tcp://127.0.0.1:" + audioServer.getLocalPort());
+        }
+
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        PlaybackEvents.ProcessSpawn event = new PlaybackEvents.ProcessSpawn();
+        event.begin();
+        try {
+            Process process = pb.start();
+            event.end();
+            if (event.shouldCommit()) {
+                event.start = startMs;
+                event.keyframe = keyframeMs;
+                event.width = options.getWidth();
+                event.height = options.getHeight();
+                event.pixelFormat = options.getPixelFormat().getFfmpegName();
+                event.commit();
+            }
+            return new DecoderSession(options, process, audioServer);
+        } catch (IOException e) {
+            if (audioServer != null) {
+                audioServer.close();
+            }
+            throw e;
+        }
+    }
+
+    private void pumpAudio() {
+        try (Socket socket = audioServer.accept()) {
+            audioSocket = socket;
+            InputStream in = socket.getInputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                audioBuffer.write(chunk, 0, n);
+            }
+        } catch (SocketTimeoutException e) {
+            System.err.println("[Audio] ffmpeg did not connect the audio output");
+        } catch (IOException e) {
+            // Socket closed by destroy()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            audioBuffer.close();
+            closeQuietly();
+        }
+    }
+
+    public DecodeOptions getOptions() {
+        return options;
+    }
+
+    public InputStream getVideoStream() {
+        return process.getInputStream();
+    }
+
+    /**
+     * Decoded s16le PCM, or null if the session was started without audio
+     */
+    public InputStream getAudioStream() {
+        return audioBuffer;
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    public void destroy() {
+        process.destroyForcibly();
+        if (audioBuffer != null) {
+            audioBuffer.abort();
+        }
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (audioServer != null) {
+                audioServer.close();
+            }
+            Socket socket = audioSocket;
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package os.org;
+
+/**
+ * Folds all channels down to their average and plays it on every channel,
+ * e.g. for a single speaker or hard-panned material
+ */
+public class DownmixProcessor implements AudioProcessor {
+    private volatile boolean enabled;
+
+    public DownmixProcessor(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isActive() {
+        return enabled;
+    }
+
+    @Override
+    public void process(float[] samples, int frames, int channels) {
+        if (channels < 2) {
+            return;
+        }
+        float scale = 1f / channels;
+        for (int f = 0, base = 0; f < frames; f++, base += channels) {
+            float sum = 0;
+            for (int c = 0; c < channels; c++) {
+                sum += samples[base + c];
+            }
+            float mono = sum * scale;
+            for (int c = 0; c < channels; c++) {
+                samples[base + c] = mono;
+            }
+        }
+    }
+}
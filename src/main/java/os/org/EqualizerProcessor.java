@@ -0,0 +1,121 @@
+package os.org;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parametric EQ made of peaking biquads (RBJ cookbook), one filter state per
+ * channel and band. Bands at 0 dB are left out, so a flat EQ costs nothing.
+ */
+public class EqualizerProcessor implements AudioProcessor {
+    private final float sampleRate;
+    private final int channels;
+    private volatile Band[] bands = new Band[0];
+
+    public EqualizerProcessor(float sampleRate, int channels) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    /**
+     * Bands from a spec such as {@code "100:3:0.7,3000:-2:1"}, each being
+     * frequency in Hz, gain in dB and Q; invalid entries are skipped
+     */
+    public static EqualizerProcessor fromSpec(float sampleRate, int channels, String spec) {
+        EqualizerProcessor eq = new EqualizerProcessor(sampleRate, channels);
+        if (spec == null || spec.trim().isEmpty()) {
+            return eq;
+        }
+        for (String band : spec.split(",")) {
+            String[] parts = band.trim().split(":");
+            try {
+                eq.addBand(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                    parts.length > 2 ? Double.parseDouble(parts[2]) : 1.0);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                System.err.println("[Audio] Ignoring EQ band '" + band + "'");
+            }
+        }
+        return eq;
+    }
+
+    public synchronized void addBand(double frequencyHz, double gainDb, double q) {
+        if (gainDb == 0) {
+            return;
+        }
+        List<Band> updated = new ArrayList<>(List.of(bands));
+        updated.add(new Band(frequencyHz, gainDb, q, sampleRate, channels));
+        bands = updated.toArray(new Band[0]);
+    }
+
+    public synchronized void clearBands() {
+        bands = new Band[0];
+    }
+
+    @Override
+    public boolean isActive() {
+        return bands.length > 0;
+    }
+
+    @Override
+    public void process(float[] samples, int frames, int channels) {
+        for (Band band : bands) {
+            band.process(samples, frames, channels);
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (Band band : bands) {
+            band.reset();
+        }
+    }
+
+    private static class Band {
+        final float b0, b1, b2, a1, a2;
+        final float[] x1, x2, y1, y2;
+
+        Band(double frequencyHz, double gainDb, double q, float sampleRate, int channels) {
+            double a = Math.pow(10, gainDb / 40);
+            double w0 = 2 * Math.PI * frequencyHz / sampleRate;
+            double alpha = Math.sin(w0) / (2 * q);
+            double cos = Math.cos(w0);
+            double a0 = 1 + alpha / a;
+            b0 = (float) ((1 + alpha * a) / a0);
+            b1 = (float) (-2 * cos / a0);
+            b2 = (float) ((1 - alpha * a) / a0);
+            a1 = (float) (-2 * cos / a0);
+            a2 = (float) ((1 - alpha / a) / a0);
+            x1 = new float[channels];
+            x2 = new float[channels];
+            y1 = new float[channels];
+            y2 = new float[channels];
+        }
+
+        void process(float[] samples, int frames, int channels) {
+            for (int c = 0; c < channels && c < x1.length; c++) {
+                float sx1 = x1[c], sx2 = x2[c], sy1 = y1[c], sy2 = y2[c];
+                for (int i = c, f = 0; f < frames; f++, i += channels) {
+                    float x = samples[i];
+                    float y = b0 * x + b1 * sx1 + b2 * sx2 - a1 * sy1 - a2 * sy2;
+                    sx2 = sx1;
+                    sx1 = x;
+                    sy2 = sy1;
+                    sy1 = y;
+                    samples[i] = y;
+                }
+                x1[c] = sx1;
+                x2[c] = sx2;
+                y1[c] = sy1;
+                y2[c] = sy2;
+            }
+        }
+
+        void reset() {
+            Arrays.fill(x1, 0);
+            Arrays.fill(x2, 0);
+            Arrays.fill(y1, 0);
+            Arrays.fill(y2, 0);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package os.org;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,6 +29,16 @@ public class FFmpegDownloader {
     );
 
     public static File getFFmpegBinary() throws Exception {
+        // Explicit binary, e.g. a system ffmpeg on Linux or CI
+        String override = System.getProperty("videoplayer.ffmpeg");
+        if (override != null) {
+            File ffmpeg = new File(override);
+            if (!ffmpeg.isFile()) {
+                throw new FileNotFoundException("videoplayer.ffmpeg does not exist: " + override);
+            }
+            return ffmpeg;
+        }
+
         // Check if already downloaded
         File ffmpegExe = APP_DATA.resolve("ffmpeg.exe").toFile();
         
@@ -65,6 +76,19 @@ public class FFmpegDownloader {
         throw new Exception("Failed to obtain FFmpeg binary");
     }
 
+    /**
+     * ffprobe next to the given ffmpeg, with the same extension, unless the
+     * {@code videoplayer.ffprobe} property names one
+     */
+    public static File getFFprobeBinary(File ffmpegBinary) {
+        String override = System.getProperty("videoplayer.ffprobe");
+        if (override != null) {
+            return new File(override);
+        }
+        String name = ffmpegBinary.getName().toLowerCase().endsWith(".exe") ? "ffprobe.exe" : "ffprobe";
+        return new File(ffmpegBinary.getParentFile(), name);
+    }
+
     private static void downloadFFmpeg() throws Exception {
         // Create app data directory
         Files.createDirectories(APP_DATA);
@@ -1,60 +1,201 @@
 package os.org;
 
+import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.imageio.ImageIO;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.SourceDataLine;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * Synchronized video player using FFmpeg with proper A/V sync
  */
 public class FFmpegVideoPlayer extends JPanel implements IVideoPlayer {
-    private Process ffmpegProcess;
-    private Process audioProcess;
+    private volatile DecoderSession session;
     private SourceDataLine audioLine;
     private final MediaControlBar controlBar;
     private final VideoPlayerModel model;
-    private BufferedImage currentFrame;
-    private final ForkJoinPool frameProcessingPool = new ForkJoinPool(2);
+    private volatile FramePool framePool;
+    private volatile FramePool retiredPool; // Painted until the new pool has a frame
     private boolean isPlaying = false;
     private long durationMs = 0;
-    private long currentTimeMs = 0;
+    private volatile long currentTimeMs = 0;
     private File ffmpegBinary;
     private File ffprobeBinary;
     private volatile boolean stopPlayback = false;
     private String currentVideoPath;
     private Thread decodeThread;
+    private Thread presentThread;
     private Thread audioThread;
+    private static final long AUDIO_STOP_WAIT_MS = 1000;
     private int videoWidth = 1280;
     private int videoHeight = 720;
+    private volatile int decodeWidth = 1280;  // Decoder output size, follows the panel size
+    private volatile int decodeHeight = 720;
+    private final DecodeOptions.PixelFormat pixelFormat = DecodeOptions.PixelFormat.configured();
+    private final YuvConverter yuvConverter = new YuvConverter();
+    private final Timer resizeDebounce;
+    
+    // Pause keeps the decoder blocked on its pipes and the audio line stopped,
+    // until resumed or released after the idle timeout
+    private static final int PAUSE_IDLE_MS = Integer.getInteger("videoplayer.pause.idleSeconds", 60) * 1000;
+    private final Timer pauseIdleTimer;
+    private final Object pauseLock = new Object();
+    private volatile boolean softPaused = false;
+    private byte[] yuvBuffer; // Reader-owned planar frame, reused across frames
     private float audioVolume = 1.0f;
-    private double actualFrameRate = 30.0; // Actual video frame rate
+    private final GainProcessor volumeGain = new GainProcessor();
+    private final GainProcessor normalizationGain = new GainProcessor();
+    private final DownmixProcessor downmix = new DownmixProcessor(Boolean.getBoolean("videoplayer.audio.mono"));
+    private final AudioChain audioChain = new AudioChain(DecoderSession.AUDIO_CHANNELS)
+        .add(EqualizerProcessor.fromSpec(DecoderSession.AUDIO_SAMPLE_RATE, DecoderSession.AUDIO_CHANNELS,
+            System.getProperty("videoplayer.eq")))
+        .add(downmix)
+        .add(normalizationGain)
+        .add(volumeGain)
+        .add(new SoftLimiter(0.9f));
+    private volatile double actualFrameRate = 30.0; // Actual video frame rate, switched by the reader on hand-off
+    private volatile boolean hasAudio = true;
+    private volatile MediaInfo mediaInfo;
+    
+    // Asynchronous loading
+    private volatile CompletableFuture<Void> pendingLoad;
+    private volatile int loadGeneration = 0;
+    private final List<Process> loadProcesses = new ArrayList<>(); // ffprobe and poster ffmpeg of the current load
+    private volatile String loadingName;          // Shown in the placeholder while loading
+    private volatile BufferedImage posterFrame;   // Shown until the first decoded frame
+    private final AtomicReference<SourceDataLine> preparedAudioLine = new AtomicReference<>();
+    private final ExecutorService loadExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Video-Load");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile KeyframeIndex keyframeIndex;
+    private Future<?> indexTask;
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Keyframe-Index");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final ThumbnailEngine thumbnailEngine;
+    private final LoudnessAnalyzer loudnessAnalyzer;
+    private static final boolean NORMALIZE_LOUDNESS = !"false".equals(System.getProperty("videoplayer.loudness"));
+    private static final double TARGET_LOUDNESS = Double.parseDouble(System.getProperty("videoplayer.loudness.target", "-16"));
+    private static final double MAX_BOOST_DB = 12.0;
+    private static final double PEAK_CEILING_DB = -1.0;
+    
+    // Single-frame stepping while paused
+    private final GopCache gopCache = GopCache.configured();
+    private volatile VideoFrame steppedFrame;   // Shown instead of the queue until playback resumes
+    private final ExecutorService stepExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Frame-Step");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final long STEP_BLOCK_MS = 2000;
+    
+    // Playback rate
+    private volatile double playbackRate = 1.0;
+    private static final double MIN_RATE = 0.25;
+    private static final double MAX_RATE = 4.0;
+    private static final double SKIP_NONREF_RATE = 2.0;
+    private static final long MAX_WAIT_SLICE_NS = 10_000_000;
+    private static final int RESIZE_DEBOUNCE_MS = 300;
     
     // Synchronization variables
-    private volatile long playbackStartTime = 0; // System time when playback started
-    private volatile long startPositionMs = 0;   // Video position where playback started
+    private final AudioClock masterClock = new AudioClock();
     private AtomicLong pendingSeekTimeMs = new AtomicLong(-1);
     private final Object seekLock = new Object();
+    private final SeekScheduler seekScheduler = new SeekScheduler(this::seekNow);
+    private volatile boolean sessionStarting = false; // No frame read from the current session yet
     private volatile boolean isUpdatingUI = false;
+    
+    // Playlist: the next item is pre-rolled shortly before the end and taken over without a gap
+    private static final long PREROLL_LEAD_MS = 5000;
+    private static final long PREROLL_WAIT_MS = 2000;
+    private final Object prerollLock = new Object();
+    private volatile File nextVideo;
+    private volatile CompletableFuture<PrerolledVideo> preroll;
+    private final AtomicReference<SourceDataLine> handoffAudioLine = new AtomicReference<>();
+    private volatile PlaybackListener playbackListener;
+    
+    // Optional warm decoders at the targets of the seek buttons
+    private static final long SEEK_STEP_MS = 10000;
+    private final StandbyPool standbyPool;
+    
+    // Cheaper decode settings while the presenter cannot keep up
+    private final QualityController quality = new QualityController();
+    
+    // Live statistics, over JMX and optionally drawn over the video
+    private final PlaybackStats stats = new PlaybackStats();
+    private volatile boolean statsOverlayVisible = Boolean.getBoolean("videoplayer.stats.overlay");
+    private static final Font STATS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color STATS_BACKGROUND = new Color(0, 0, 0, 160);
+    
+    // Presenter draws into this canvas itself with videoplayer.render=active, else null
+    private final VideoCanvas videoCanvas;
 
     public FFmpegVideoPlayer(MediaControlBar controlBar, VideoPlayerModel model) {
         this.controlBar = controlBar;
         this.model = model;
         setBackground(Color.BLACK);
+        if (VideoCanvas.ENABLED) {
+            videoCanvas = new VideoCanvas(this::paintVideo);
+            setLayout(new BorderLayout());
+            add(videoCanvas, BorderLayout.CENTER);
+        } else {
+            videoCanvas = null;
+        }
         extractFFmpeg();
+        thumbnailEngine = new ThumbnailEngine(ffmpegBinary);
+        standbyPool = new StandbyPool(ffmpegBinary);
+        controlBar.setThumbnailEngine(thumbnailEngine);
+        loudnessAnalyzer = new LoudnessAnalyzer(ffmpegBinary, () -> isPlaying);
+        stats.register();
+        
+        // Renegotiate the decode size once the panel has settled after resizes,
+        // full-screen switches or moves to a screen with a different scale
+        resizeDebounce = new Timer(RESIZE_DEBOUNCE_MS, e -> renegotiateDecodeSize());
+        resizeDebounce.setRepeats(false);
+        pauseIdleTimer = new Timer(Math.max(1, PAUSE_IDLE_MS), e -> releasePausedSession());
+        pauseIdleTimer.setRepeats(false);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                resizeDebounce.restart();
+            }
+        });
+        addPropertyChangeListener("graphicsConfiguration", e -> resizeDebounce.restart());
     }
 
     private void extractFFmpeg() {
@@ -63,8 +204,7 @@ public class FFmpegVideoPlayer extends JPanel implements IVideoPlayer {
             System.out.println("[FFmpeg] Ready: " + ffmpegBinary.getAbsolutePath());
             
             if (ffmpegBinary != null && ffmpegBinary.exists()) {
-                String ffmpegDir = ffmpegBinary.getParent();
-                ffprobeBinary = new File(ffmpegDir, "ffprobe.exe");
+                ffprobeBinary = FFmpegDownloader.getFFprobeBinary(ffmpegBinary);
             }
         } catch (Exception e) {
             System.err.println("[FFmpeg] Error: " + e.getMessage());
@@ -74,409 +214,1375 @@ public class FFmpegVideoPlayer extends JPanel implements IVideoPlayer {
         }
     }
 
-    @Override
-    public void loadVideo(File file) {
-        try {
-            currentVideoPath = file.getAbsolutePath();
-            System.out.println("[FFmpeg] Loading: " + currentVideoPath);
-            
-            getVideoInfo();
-            
-            controlBar.setVideoLoaded(true);
-        } catch (Exception e) {
-            System.err.println("[FFmpeg] Load error: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                "Error loading video: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-
     /**
-     * Get video duration, dimensions, and frame rate using ffprobe
+     * Load a video without blocking the caller, normally the EDT. Probing,
+     * decoding a poster frame and opening the audio device run in parallel while
+     * a placeholder is painted. The returned future completes on the EDT once the
+     * video is ready to play; it is cancelled if another file is loaded first.
      */
-    private void getVideoInfo() throws Exception {
-        if (ffprobeBinary == null || !ffprobeBinary.exists()) {
-            System.err.println("[FFmpeg] ffprobe not found");
-            return;
+    @Override
+    public CompletableFuture<Void> loadVideo(File file) {
+        CompletableFuture<Void> previous = pendingLoad;
+        if (previous != null) {
+            previous.cancel(true);
         }
+        int generation = ++loadGeneration;
+        destroyLoadProcesses();
         
-        // Get duration
-        ProcessBuilder pb = new ProcessBuilder(
-            ffprobeBinary.getAbsolutePath(),
-            "-v", "error",
-            "-show_entries", "format=duration",
-            "-of", "default=noprint_wrappers=1:nokey=1",
-            currentVideoPath
-        );
+        stop();
+        nextVideo = null;
+        currentVideoPath = file.getAbsolutePath();
+        currentTimeMs = 0;
+        loadingName = file.getName();
+        posterFrame = null;
+        framePool = null;
+        retiredPool = null;
+        steppedFrame = null;
+        gopCache.clear();
+        thumbnailEngine.close();
+        loudnessAnalyzer.cancel();
+        normalizationGain.setGain(1.0f);
+        quality.reset();
+        controlBar.setVideoLoaded(false);
+        repaint();
+        System.out.println("[FFmpeg] Loading: " + currentVideoPath);
         
-        Process process = pb.start();
-        InputStream is = process.getInputStream();
-        byte[] data = is.readAllBytes();
-        String output = new String(data).trim();
+        CompletableFuture<MediaInfo> probe = CompletableFuture.supplyAsync(() -> probeVideo(file, generation), loadExecutor);
+        buildKeyframeIndex(file, probe);
+        CompletableFuture.supplyAsync(() -> decodePosterFrame(file, generation), loadExecutor)
+            .thenAccept(poster -> SwingUtilities.invokeLater(() -> {
+                if (generation == loadGeneration && poster != null) {
+                    posterFrame = poster;
+                    repaint();
+                }
+            }));
+        CompletableFuture.runAsync(() -> prepareAudioLine(generation), loadExecutor);
         
+        CompletableFuture<Void> load = new CompletableFuture<>();
+        pendingLoad = load;
+        probe.whenComplete((info, error) -> SwingUtilities.invokeLater(() -> {
+            if (generation != loadGeneration || load.isDone()) {
+                return;
+            }
+            if (error != null) {
+                load.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
+            applyVideoInfo(info);
+            loadingName = null;
+            controlBar.setVideoLoaded(true);
+            load.complete(null);
+        }));
+        return load;
+    }
+    
+    /**
+     * Probe on a loader thread; a failed probe leaves the defaults in place
+     */
+    private MediaInfo probeVideo(File file, int generation) {
+        Process[] started = new Process[1];
         try {
-            durationMs = (long) (Double.parseDouble(output) * 1000);
-            System.out.println("[FFmpeg] Duration: " + (durationMs / 1000) + "s");
-            model.setDuration(new SimpleDuration(durationMs));
-            controlBar.setDuration(new SimpleDuration(durationMs));
-        } catch (NumberFormatException e) {
-            System.err.println("[FFmpeg] Could not parse duration: " + output);
+            return MediaProber.probe(ffprobeBinary, file, process -> {
+                started[0] = process;
+                trackLoadProcess(generation, process);
+            });
+        } catch (IOException e) {
+            if (generation == loadGeneration) {
+                System.err.println("[FFmpeg] Could not probe video: " + e.getMessage());
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            if (started[0] != null) {
+                untrackLoadProcess(started[0]);
+            }
         }
-        
-        // Get video dimensions and frame rate
+    }
+    
+    /**
+     * Decode the first frame as a BMP, which needs no knowledge of the frame
+     * size and so can run before the probe has finished
+     */
+    private BufferedImage decodePosterFrame(File file, int generation) {
+        if (ffmpegBinary == null) {
+            return null;
+        }
+        Process process = null;
         try {
-            pb = new ProcessBuilder(
-                ffprobeBinary.getAbsolutePath(),
+            ProcessBuilder pb = new ProcessBuilder(
+                ffmpegBinary.getAbsolutePath(),
                 "-v", "error",
-                "-select_streams", "v:0",
-                "-show_entries", "stream=width,height,r_frame_rate",
-                currentVideoPath
+                "-i", file.getAbsolutePath(),
+                "-frames:v", "1",
+                "-f", "image2pipe",
+                "-vcodec", "bmp",
+                "-"
             );
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
             process = pb.start();
-            is = process.getInputStream();
-            data = is.readAllBytes();
-            String dimOutput = new String(data).trim();
-            System.out.println("[FFmpeg] Stream info:\n" + dimOutput);
-            
-            String[] lines = dimOutput.split("\n");
-            for (String line : lines) {
-                if (line.startsWith("width=")) {
-                    videoWidth = Integer.parseInt(line.substring(6).trim());
-                } else if (line.startsWith("height=")) {
-                    videoHeight = Integer.parseInt(line.substring(7).trim());
-                } else if (line.startsWith("r_frame_rate=")) {
-                    String fpsStr = line.substring(13).trim();
-                    // Parse fraction like "30/1" or "24000/1001"
-                    if (fpsStr.contains("/")) {
-                        String[] parts = fpsStr.split("/");
-                        double num = Double.parseDouble(parts[0]);
-                        double den = Double.parseDouble(parts[1]);
-                        actualFrameRate = num / den;
-                    } else {
-                        actualFrameRate = Double.parseDouble(fpsStr);
-                    }
-                    System.out.println("[FFmpeg] Frame rate: " + String.format("%.2f", actualFrameRate) + " fps");
-                }
+            if (!trackLoadProcess(generation, process)) {
+                return null;
+            }
+            return ImageIO.read(process.getInputStream());
+        } catch (IOException e) {
+            if (generation == loadGeneration) {
+                System.err.println("[FFmpeg] Could not decode poster frame: " + e.getMessage());
+            }
+            return null;
+        } finally {
+            if (process != null) {
+                untrackLoadProcess(process);
+                process.destroy();
+            }
+        }
+    }
+    
+    /**
+     * Remember a process started for the load of the given generation, so a
+     * newer load can destroy it; one already superseded is destroyed at once
+     *
+     * @return false if the process was destroyed
+     */
+    private boolean trackLoadProcess(int generation, Process process) {
+        synchronized (loadProcesses) {
+            if (generation != loadGeneration) {
+                process.destroyForcibly();
+                return false;
+            }
+            loadProcesses.add(process);
+            return true;
+        }
+    }
+    
+    private void untrackLoadProcess(Process process) {
+        synchronized (loadProcesses) {
+            loadProcesses.remove(process);
+        }
+    }
+    
+    /**
+     * Kill the ffprobe and poster processes of a superseded load
+     */
+    private void destroyLoadProcesses() {
+        synchronized (loadProcesses) {
+            for (Process process : loadProcesses) {
+                process.destroyForcibly();
+            }
+            loadProcesses.clear();
+        }
+    }
+    
+    /**
+     * Open the audio device ahead of playback; the first audio thread picks it up
+     */
+    private void prepareAudioLine(int generation) {
+        try {
+            SourceDataLine line = openAudioLine();
+            // A superseded load closes its own line, a current one replaces any older line
+            SourceDataLine stale = generation == loadGeneration ? preparedAudioLine.getAndSet(line) : line;
+            if (stale != null) {
+                stale.close();
             }
-            System.out.println("[FFmpeg] Resolution: " + videoWidth + "x" + videoHeight);
         } catch (Exception e) {
-            System.err.println("[FFmpeg] Could not get video info: " + e.getMessage());
+            System.err.println("[Audio] Could not open audio device: " + e.getMessage());
+        }
+    }
+    
+    private static SourceDataLine openAudioLine() throws LineUnavailableException {
+        AudioFormat audioFormat = new AudioFormat(DecoderSession.AUDIO_SAMPLE_RATE, 16, DecoderSession.AUDIO_CHANNELS, true, false);
+        SourceDataLine line = AudioSystem.getSourceDataLine(audioFormat);
+        line.open(audioFormat);
+        return line;
+    }
+
+    /**
+     * Apply duration, dimensions, frame rate and streams from the probe
+     */
+    private void applyVideoInfo(MediaInfo info) {
+        if (info == null) {
+            return;
+        }
+        mediaInfo = info;
+        
+        durationMs = info.getDurationMs();
+        System.out.println("[FFmpeg] Duration: " + (durationMs / 1000) + "s (" + info.getFormatName() + ")");
+        model.setDuration(new SimpleDuration(durationMs));
+        controlBar.setDuration(new SimpleDuration(durationMs));
+        
+        MediaInfo.StreamInfo video = info.getVideoStream();
+        if (video != null && video.getWidth() > 0 && video.getHeight() > 0) {
+            // ffmpeg auto-rotates, so frames come out in display orientation
+            videoWidth = video.getDisplayWidth();
+            videoHeight = video.getDisplayHeight();
+            if (video.getFrameRate() > 0) {
+                actualFrameRate = video.getFrameRate();
+            }
+            System.out.println("[FFmpeg] Video: " + video.getCodecName() + " " + videoWidth + "x" + videoHeight
+                + " @ " + String.format("%.2f", actualFrameRate) + " fps"
+                + (video.getRotation() != 0 ? ", rotated " + video.getRotation() : ""));
+        } else {
             System.out.println("[FFmpeg] Using defaults: 1280x720 @ 30fps");
         }
+        thumbnailEngine.open(new File(currentVideoPath), durationMs, videoWidth, videoHeight);
+        
+        MediaInfo.StreamInfo audio = info.getAudioStream();
+        hasAudio = audio != null;
+        if (hasAudio) {
+            System.out.println("[FFmpeg] Audio: " + audio.getCodecName() + " " + audio.getSampleRate() + "Hz "
+                + (audio.getChannelLayout() != null ? audio.getChannelLayout() : audio.getChannels() + "ch"));
+            startLoudnessNormalization(new File(currentVideoPath));
+        } else {
+            System.out.println("[FFmpeg] No audio stream");
+            SourceDataLine unused = preparedAudioLine.getAndSet(null);
+            if (unused != null) {
+                unused.close();
+            }
+        }
+    }
+    
+    /**
+     * Result of the last probe, or null before a video was loaded
+     */
+    public MediaInfo getMediaInfo() {
+        return mediaInfo;
+    }
+
+    /**
+     * Load or build the keyframe index of the probed video stream in the
+     * background; seeks fall back to plain ffmpeg seeking until it is available
+     */
+    private void buildKeyframeIndex(File file, CompletableFuture<MediaInfo> probe) {
+        keyframeIndex = null;
+        if (indexTask != null) {
+            indexTask.cancel(true);
+        }
+        if (ffprobeBinary == null || !ffprobeBinary.exists()) {
+            return;
+        }
+        String path = file.getAbsolutePath();
+        indexTask = indexExecutor.submit(() -> {
+            try {
+                // Index the probed video stream, which skips cover art
+                MediaInfo info = probe.join();
+                MediaInfo.StreamInfo video = info != null ? info.getVideoStream() : null;
+                KeyframeIndex index = KeyframeIndex.loadOrBuild(ffprobeBinary, file, video != null ? video.getIndex() : -1);
+                if (path.equals(currentVideoPath)) {
+                    keyframeIndex = index;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("[Index] Could not index keyframes: " + e.getMessage());
+            }
+        });
     }
 
     @Override
     public void play() {
         if (!isPlaying) {
             isPlaying = true;
-            stopPlayback = false;
             controlBar.setPlaying(true);
+            if (softPaused && resumePausedSession()) {
+                return;
+            }
+            stopPlayback = false;
+            updateDecodeSize();
             startPlayback();
         }
     }
+    
+    /**
+     * Continue the session kept by {@link #pause()}: restart the line and the
+     * clock and let the presenter and audio thread carry on where they stopped
+     *
+     * @return false if the session was released instead, e.g. because the
+     * panel was resized meanwhile
+     */
+    private boolean resumePausedSession() {
+        pauseIdleTimer.stop();
+        if (updateDecodeSize()) {
+            releasePausedSession();
+            return false;
+        }
+        SourceDataLine line = audioLine;
+        if (line != null && line.isOpen()) {
+            line.start();
+        }
+        masterClock.resume();
+        wakePaused();
+        System.out.println("[FFmpeg] Resumed at " + (currentTimeMs / 1000) + "s");
+        return true;
+    }
+    
+    /**
+     * Tear down the session kept by {@link #pause()}; the next play starts a
+     * new one at the current position
+     */
+    private void releasePausedSession() {
+        pauseIdleTimer.stop();
+        if (!softPaused) {
+            return;
+        }
+        System.out.println("[FFmpeg] Releasing paused decoder at " + (currentTimeMs / 1000) + "s");
+        standbyPool.invalidate();
+        stopPlayback = true;
+        destroySession();
+        interruptVideoThreads();
+        wakePaused();
+    }
+    
+    private void wakePaused() {
+        synchronized (pauseLock) {
+            softPaused = false;
+            pauseLock.notifyAll();
+        }
+    }
+    
+    /**
+     * Called by the presenter and audio thread: block while paused with the
+     * session kept
+     *
+     * @return true if the thread was paused
+     */
+    private boolean awaitResume() throws InterruptedException {
+        if (!softPaused) {
+            return false;
+        }
+        synchronized (pauseLock) {
+            while (softPaused && !stopPlayback) {
+                pauseLock.wait(100);
+            }
+        }
+        return true;
+    }
 
     /**
-     * Start synchronized playback using system clock as master
+     * Start synchronized playback using the audio clock as master
      */
     private void startPlayback() {
         // Stop any existing playback
         stopPlayback = true;
+        destroySession();
+        waitForThreads();
         
-        if (ffmpegProcess != null) {
-            ffmpegProcess.destroyForcibly();
-        }
-        if (audioProcess != null) {
-            audioProcess.destroyForcibly();
+        // A seek made while stopped or paused: start there rather than spawn at
+        // the old position and restart at once
+        long pendingSeek = pendingSeekTimeMs.getAndSet(-1);
+        if (pendingSeek >= 0) {
+            currentTimeMs = pendingSeek;
         }
         
-        waitForThreads();
-        
         stopPlayback = false;
         
-        // Set the master clock - use system time as reference
-        playbackStartTime = System.nanoTime();
-        startPositionMs = currentTimeMs;
+        // The clock holds at this position until the audio line is running
+        masterClock.reset(currentTimeMs);
         
         System.out.println("[FFmpeg] Starting synchronized playback at " + (currentTimeMs / 1000) + "s");
         
-        // Start audio first (audio is typically the master clock)
-        startAudioPlayback();
+        startVideoPlayback();
+    }
+    
+    private void waitForThreads() {
+        // Wake the reader if it is blocked on a full queue and the presenter if it is pacing
+        interruptVideoThreads();
+        if (decodeThread != null && decodeThread.isAlive()) {
+            try {
+                decodeThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (presentThread != null && presentThread.isAlive()) {
+            try {
+                presentThread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stopAudioThread();
+    }
+
+    /**
+     * Start the pipe reader, which decodes ahead into the frame queue and also
+     * starts audio for each decoder session, and the presenter, which pulls
+     * frames from the queue on the master clock's schedule
+     */
+    private void startVideoPlayback() {
+        FramePool pool = obtainFramePool();
+        pool.flush();
+        stats.setFramePool(pool);
+        
+        decodeThread = new Thread(() -> readVideo(pool));
+        decodeThread.setName("FFmpeg-Video");
+        decodeThread.start();
         
-        // Small delay to ensure audio starts first
+        presentThread = new Thread(() -> presentVideo(pool));
+        presentThread.setName("FFmpeg-Present");
+        presentThread.start();
+    }
+    
+    /**
+     * Reader loop: start one decoder session at the current position, feed its
+     * audio to the audio thread and fill the frame queue with its video as fast
+     * as the queue allows, starting a new session on seek
+     */
+    private void readVideo(FramePool pool) {
+        PrerolledVideo handoff = null;
+        boolean afterSeek = false;
         try {
-            Thread.sleep(50);
+            while (!stopPlayback) {
+                DecoderSession current;
+                List<byte[]> buffered = Collections.emptyList();
+                long standbyKeyframeMs = -1;
+                long spawnNs = System.nanoTime();
+                PlaybackEvents.FirstFrame firstFrameEvent = new PlaybackEvents.FirstFrame();
+                firstFrameEvent.begin();
+                if (handoff != null) {
+                    // The next playlist item's session is already running and its
+                    // audio was started at the switch
+                    current = handoff.getSession();
+                    buffered = handoff.getBufferedFrames();
+                    handoff = null;
+                    System.out.println("[Video] Continuing with " + new File(currentVideoPath).getName());
+                } else {
+                    PrerolledVideo standby = takeStandby();
+                    if (standby != null) {
+                        // Positioned at the keyframe: skip ahead to the target below
+                        current = standby.getSession();
+                        buffered = standby.getBufferedFrames();
+                        standbyKeyframeMs = current.getOptions().getKeyframeMs();
+                        System.out.println("[Video] Continuing standby decoder from keyframe " + standbyKeyframeMs + "ms");
+                    } else {
+                        current = startSession();
+                    }
+                    // Audio and video come from the same process and the same seek point
+                    startAudioPlayback(current, standbyKeyframeMs >= 0
+                        ? audioBytesFor(currentTimeMs - standbyKeyframeMs) : 0);
+                }
+                session = current;
+                sessionStarting = true;
+                DecodeOptions options = current.getOptions();
+                
+                InputStream in = current.getVideoStream();
+                int frameSize = options.getFrameSize();
+                boolean planar = options.getPixelFormat() == DecodeOptions.PixelFormat.YUV420P;
+                MediaInfo.StreamInfo videoStream = mediaInfo != null ? mediaInfo.getVideoStream() : null;
+                YuvConverter.Matrix matrix = YuvConverter.Matrix.forSource(
+                    videoStream != null ? videoStream.getColorSpace() : null, videoHeight);
+                if (planar && (yuvBuffer == null || yuvBuffer.length != frameSize)) {
+                    yuvBuffer = new byte[frameSize];
+                }
+                long segmentStartMs = currentTimeMs;
+                if (standbyKeyframeMs >= 0) {
+                    long skipped = skipToTarget(in, buffered, frameSize, standbyKeyframeMs, options.getFrameRate());
+                    if (skipped >= 0) {
+                        buffered = buffered.subList((int) Math.min(skipped, buffered.size()), buffered.size());
+                        segmentStartMs = FramePacing.frameTimeMs(standbyKeyframeMs, skipped, options.getFrameRate());
+                    } else if (pendingSeekTimeMs.get() < 0) {
+                        pool.endOfStream();
+                        break;
+                    }
+                }
+                long frameCount = 0;
+                long lastFrameTimeMs = segmentStartMs;
+                boolean seekDetected = false;
+                
+                // The pipe is read to its end even after ffmpeg has exited
+                while (!stopPlayback) {
+                    // Check for seek
+                    long pendingSeek = pendingSeekTimeMs.getAndSet(-1);
+                    if (pendingSeek >= 0 && pendingSeek != currentTimeMs) {
+                        System.out.println("[Video] Seek: " + (currentTimeMs / 1000) + "s -> " + (pendingSeek / 1000) + "s");
+                        currentTimeMs = pendingSeek;
+                        seekDetected = true;
+                        
+                        // Reset master clock first so the old audio thread sees it is superseded;
+                        // the next session restarts audio at the new position
+                        masterClock.reset(currentTimeMs);
+                        current.destroy();
+                        stopAudioThread();
+                        
+                        // Discard frames decoded ahead from the old position
+                        pool.flush();
+                        
+                        break;
+                    }
+                    
+                    // Read frame straight into a pooled frame's raster, or into the reused
+                    // planar buffer for conversion; blocks while the queue is full
+                    VideoFrame frame = pool.acquireForDecode();
+                    if (frame == null || stopPlayback) {
+                        if (frame != null) {
+                            pool.recycle(frame);
+                        }
+                        break;
+                    }
+                    byte[] target = planar ? yuvBuffer : frame.getData();
+                    long readStartNs = System.nanoTime();
+                    PlaybackEvents.FrameRead readEvent = new PlaybackEvents.FrameRead();
+                    readEvent.begin();
+                    int totalRead;
+                    if (frameCount < buffered.size()) {
+                        System.arraycopy(buffered.get((int) frameCount), 0, target, 0, frameSize);
+                        totalRead = frameSize;
+                    } else {
+                        totalRead = readFrame(in, target, frameSize);
+                    }
+                    readEvent.end();
+                    if (readEvent.shouldCommit()) {
+                        readEvent.frameNumber = frameCount;
+                        readEvent.bytes = Math.max(0, totalRead);
+                        readEvent.commit();
+                    }
+                    if (totalRead < frameSize) {
+                        pool.recycle(frame);
+                        if (pendingSeekTimeMs.get() >= 0) {
+                            // Cut short by a seek cancelling this session
+                            continue;
+                        }
+                        if (totalRead == -1) {
+                            handoff = handOffToNext(pool, lastFrameTimeMs);
+                            if (handoff == null) {
+                                System.out.println("[Video] EOF reached");
+                                pool.endOfStream();
+                            }
+                        }
+                        break;
+                    }
+                    
+                    if (planar) {
+                        PlaybackEvents.FrameConvert convertEvent = new PlaybackEvents.FrameConvert();
+                        convertEvent.begin();
+                        yuvConverter.convert(yuvBuffer, frame.getData(), options.getWidth(), options.getHeight(), matrix);
+                        convertEvent.end();
+                        if (convertEvent.shouldCommit()) {
+                            convertEvent.frameNumber = frameCount;
+                            convertEvent.width = options.getWidth();
+                            convertEvent.height = options.getHeight();
+                            convertEvent.commit();
+                        }
+                    }
+                    stats.recordDecoded(frameSize, System.nanoTime() - readStartNs);
+                    
+                    long frameTimeMs = FramePacing.frameTimeMs(segmentStartMs, frameCount, options.getFrameRate());
+                    frame.setPosition(frameCount, frameTimeMs);
+                    if (frameCount == 0) {
+                        sessionStarting = false;
+                        System.out.println("[Video] First frame after " + ((System.nanoTime() - spawnNs) / 1_000_000) + "ms");
+                        firstFrameEvent.end();
+                        if (firstFrameEvent.shouldCommit()) {
+                            firstFrameEvent.position = segmentStartMs;
+                            firstFrameEvent.seek = afterSeek;
+                            firstFrameEvent.commit();
+                        }
+                    }
+                    frameCount++;
+                    lastFrameTimeMs = frameTimeMs;
+                    pool.enqueue(frame);
+                }
+                
+                if (!seekDetected && handoff == null) {
+                    break;
+                }
+                afterSeek = seekDetected;
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("[Video] Error: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (handoff != null) {
+                handoff.destroy();
+            }
         }
+    }
+    
+    /**
+     * Start a decoder session at the current position, from the preceding
+     * keyframe when the index knows it
+     */
+    private DecoderSession startSession() throws IOException {
+        KeyframeIndex index = keyframeIndex;
+        long keyframeMs = index != null && currentTimeMs > 0 ? index.keyframeAtOrBefore(currentTimeMs) : -1;
+        DecodeOptions options = sessionOptions().copyAt(currentTimeMs, keyframeMs);
         
-        // Start video decode thread
-        startVideoPlayback();
+        DecoderSession started = DecoderSession.start(ffmpegBinary, currentVideoPath, options);
+        System.out.println("[Video] Session started at " + (currentTimeMs / 1000) + "s"
+            + (keyframeMs >= 0 ? " (keyframe " + keyframeMs + "ms)" : ""));
+        return started;
+    }
+    
+    /**
+     * Decode settings for the current rate, quality level and panel size,
+     * starting at the beginning
+     */
+    private DecodeOptions sessionOptions() {
+        // Above 1x fewer frames per media second are needed to keep the
+        // display rate; from 2x non-reference frames are not even decoded
+        double rate = playbackRate;
+        QualityController.Level level = quality.getLevel();
+        double frameRate = actualFrameRate / level.getRateDivisor();
+        return new DecodeOptions()
+            .videoStream(videoStreamIndex())
+            .size(outputWidth(), outputHeight())
+            .pixelFormat(pixelFormat)
+            .frameRate(rate > 1.0 ? frameRate / rate : frameRate)
+            .skipNonReference(rate >= SKIP_NONREF_RATE || level.isSkipNonReference())
+            .audio(hasAudio);
+    }
+    
+    /**
+     * Absolute index of the probed video stream, skipping cover art, or -1 to
+     * let ffmpeg take the first one
+     */
+    private int videoStreamIndex() {
+        MediaInfo info = mediaInfo;
+        MediaInfo.StreamInfo video = info != null ? info.getVideoStream() : null;
+        return video != null ? video.getIndex() : -1;
+    }
+    
+    /**
+     * A standby decoder serving the current position, if one is ready with the
+     * settings a new session would use
+     */
+    private PrerolledVideo takeStandby() {
+        if (keyframeIndex == null || currentTimeMs <= 0) {
+            return null;
+        }
+        return standbyPool.take(currentVideoPath, currentTimeMs, sessionOptions());
+    }
+    
+    /**
+     * Called by the presenter: while playback is steady at full quality, keep
+     * standby decoders at the keyframes the seek buttons would land after
+     */
+    private void maybeRefreshStandby(FramePool pool, long positionMs) {
+        KeyframeIndex index = keyframeIndex;
+        if (!StandbyPool.isEnabled() || index == null || !isPlaying || playbackRate != 1.0
+                || quality.getLevel() != QualityController.Level.FULL
+                || pool.getQueueDepth() < pool.getQueueCapacity() / 2) {
+            return;
+        }
+        long forwardMs = positionMs + SEEK_STEP_MS;
+        long forwardTargetMs = forwardMs < durationMs ? forwardMs : -1;
+        long backwardTargetMs = positionMs >= SEEK_STEP_MS ? positionMs - SEEK_STEP_MS : -1;
+        String path = currentVideoPath;
+        MediaInfo info = mediaInfo;
+        if (info == null || standbyPool.isPrepared(path, forwardTargetMs, backwardTargetMs)) {
+            return;
+        }
+        standbyPool.prepare(new File(path), info, sessionOptions(), index, forwardTargetMs, backwardTargetMs);
+    }
+    
+    /**
+     * Read and discard the frames of a standby session that lie before the
+     * current position, first from its buffered frames, then from the pipe
+     *
+     * @return the number of frames skipped, or -1 if the stream ended first
+     */
+    private long skipToTarget(InputStream in, List<byte[]> buffered, int frameSize, long keyframeMs,
+                              double frameRate) throws IOException {
+        long skipped = 0;
+        byte[] scratch = null;
+        while (!stopPlayback && FramePacing.frameTimeMs(keyframeMs, skipped, frameRate) < currentTimeMs) {
+            if (skipped >= buffered.size()) {
+                if (scratch == null) {
+                    scratch = planarScratch(frameSize);
+                }
+                if (readFrame(in, scratch, frameSize) < frameSize) {
+                    return -1;
+                }
+            }
+            skipped++;
+        }
+        return skipped;
+    }
+    
+    private byte[] planarScratch(int frameSize) {
+        if (yuvBuffer == null || yuvBuffer.length != frameSize) {
+            yuvBuffer = new byte[frameSize];
+        }
+        return yuvBuffer;
+    }
+    
+    /**
+     * Size of the s16le PCM covering the given duration
+     */
+    private static int audioBytesFor(long durationMs) {
+        long frames = Math.round(Math.max(0, durationMs) * DecoderSession.AUDIO_SAMPLE_RATE / 1000.0);
+        return (int) frames * DecoderSession.AUDIO_CHANNELS * 2;
+    }
+    
+    /**
+     * Next playlist item to pre-roll near the end of this one, or null
+     */
+    @Override
+    public void setNextVideo(File file) {
+        synchronized (prerollLock) {
+            if (file == null ? nextVideo == null : file.equals(nextVideo)) {
+                return;
+            }
+            cancelPreroll();
+            nextVideo = file;
+        }
+    }
+    
+    @Override
+    public void setPlaybackListener(PlaybackListener listener) {
+        this.playbackListener = listener;
+    }
+    
+    /**
+     * Called by the presenter: once within {@link #PREROLL_LEAD_MS} of the end,
+     * probe the next item and start its decoder at the current output size.
+     * The frame pool carries over to the next item, so an item that negotiates
+     * a different decode size is not pre-rolled and loads normally instead.
+     */
+    private void maybeStartPreroll(long positionMs) {
+        File next = nextVideo;
+        if (next == null || preroll != null || durationMs <= 0 || positionMs < durationMs - PREROLL_LEAD_MS) {
+            return;
+        }
+        synchronized (prerollLock) {
+            if (preroll != null || next != nextVideo) {
+                return;
+            }
+            int width = decodeWidth;
+            int height = decodeHeight;
+            DecodeOptions.PixelFormat format = pixelFormat;
+            preroll = CompletableFuture.supplyAsync(() -> {
+                try {
+                    MediaInfo info = MediaProber.probe(ffprobeBinary, next);
+                    MediaInfo.StreamInfo video = info.getVideoStream();
+                    if (video != null && video.getWidth() > 0 && video.getHeight() > 0) {
+                        // Never upscale the next item to this one's size
+                        Dimension size = negotiateDecodeSize(video.getDisplayWidth(), video.getDisplayHeight(), format);
+                        if (size.width != width || size.height != height) {
+                            System.out.println("[Playlist] Not pre-rolling " + next.getName() + ": decodes at "
+                                + size.width + "x" + size.height + ", not " + width + "x" + height);
+                            return null;
+                        }
+                    }
+                    return PrerolledVideo.start(ffmpegBinary, next, info, width, height, format);
+                } catch (IOException e) {
+                    System.err.println("[Playlist] Could not pre-roll " + next.getName() + ": " + e.getMessage());
+                    throw new CompletionException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                }
+            }, loadExecutor);
+        }
+    }
+    
+    private boolean isPrerollReady() {
+        CompletableFuture<PrerolledVideo> pending = preroll;
+        return pending != null && pending.isDone() && !pending.isCompletedExceptionally()
+            && pending.getNow(null) != null && playbackRate == 1.0
+            && quality.getLevel() == QualityController.Level.FULL;
+    }
+    
+    /**
+     * Drop the pre-roll, e.g. because the user skipped to another item; a
+     * pre-roll still starting is destroyed as soon as it is up
+     */
+    private void cancelPreroll() {
+        synchronized (prerollLock) {
+            CompletableFuture<PrerolledVideo> pending = preroll;
+            preroll = null;
+            if (pending != null) {
+                pending.thenAccept(next -> {
+                    if (next != null) {
+                        next.destroy();
+                    }
+                });
+            }
+        }
+    }
+    
+    /**
+     * At the end of the current item: if the next one is pre-rolled, let this
+     * item's audio and last frames play out, then switch the timeline over to
+     * the next item, whose session the reader continues with
+     *
+     * @return the pre-rolled item, or null to end playback normally
+     */
+    private PrerolledVideo handOffToNext(FramePool pool, long lastFrameTimeMs) throws InterruptedException {
+        if (stopPlayback || !isPrerollReady()) {
+            return null;
+        }
+        // Hold the switch while paused with the session kept
+        awaitResume();
+        // The audio thread ends on the same EOF and leaves the line running for the next item
+        Thread oldAudio = audioThread;
+        if (oldAudio != null) {
+            oldAudio.join(PREROLL_WAIT_MS);
+        }
+        
+        PrerolledVideo next;
+        synchronized (prerollLock) {
+            CompletableFuture<PrerolledVideo> pending = preroll;
+            preroll = null;
+            nextVideo = null;
+            next = pending != null ? pending.getNow(null) : null;
+        }
+        if (next == null) {
+            return null;
+        }
+        if (!next.matches(decodeWidth, decodeHeight, pixelFormat)) {
+            next.destroy();
+            return null;
+        }
+        
+        // Present what is still queued, then discard the frame the presenter may hold
+        long deadlineNs = System.nanoTime() + PREROLL_WAIT_MS * 1_000_000;
+        while (!stopPlayback && System.nanoTime() < deadlineNs
+                && (pool.getQueueDepth() > 0 || masterClock.getPositionMs() < lastFrameTimeMs)) {
+            Thread.sleep(5);
+        }
+        if (stopPlayback) {
+            next.destroy();
+            return null;
+        }
+        pool.flush();
+        
+        File file = next.getFile();
+        MediaInfo info = next.getInfo();
+        System.out.println("[Playlist] Gapless switch to " + file.getName());
+        currentVideoPath = file.getAbsolutePath();
+        currentTimeMs = 0;
+        mediaInfo = info;
+        actualFrameRate = next.getSession().getOptions().getFrameRate();
+        hasAudio = info.hasAudio();
+        steppedFrame = null;
+        gopCache.clear();
+        thumbnailEngine.close();
+        normalizationGain.setGain(1.0f);
+        masterClock.reset(0);
+        standbyPool.invalidate();
+        startAudioPlayback(next.getSession(), 0);
+        SwingUtilities.invokeLater(() -> {
+            buildKeyframeIndex(file, CompletableFuture.completedFuture(info));
+            applyVideoInfo(info);
+            PlaybackListener listener = playbackListener;
+            if (listener != null) {
+                listener.videoStarted(file);
+            }
+        });
+        return next;
+    }
+    
+    /**
+     * Presenter loop: pace queued frames against the master clock and hand
+     * them to the painter, dropping frames that are too late to be worth showing
+     */
+    private void presentVideo(FramePool pool) {
+        double frameRate = actualFrameRate;
+        long frameDurationNs = FramePacing.frameDurationNs(
+            frameRate / quality.getLevel().getRateDivisor(), playbackRate);
+        long pollTimeoutMs = Math.max(10, 4 * frameDurationNs / 1_000_000);
+        quality.restart();
+        
+        try {
+            while (!stopPlayback) {
+                if (awaitResume()) {
+                    quality.restart();
+                }
+                if (actualFrameRate != frameRate) {
+                    // Gapless switch to an item with another frame rate
+                    frameRate = actualFrameRate;
+                    frameDurationNs = FramePacing.frameDurationNs(
+                        frameRate / quality.getLevel().getRateDivisor(), playbackRate);
+                    pollTimeoutMs = Math.max(10, 4 * frameDurationNs / 1_000_000);
+                    quality.restart();
+                }
+                VideoFrame frame = pool.takeNext(pollTimeoutMs);
+                if (frame == null) {
+                    if (pool.isDrained()) {
+                        System.out.println("[Video] Playback ended");
+                        stopPlayback = true;
+                        isPlaying = false;
+                        controlBar.setPlaying(false);
+                        PlaybackListener listener = playbackListener;
+                        if (listener != null) {
+                            SwingUtilities.invokeLater(listener::playbackEnded);
+                        }
+                        break;
+                    }
+                    continue;
+                }
+                
+                // Wait until the master clock reaches this frame
+                PlaybackEvents.FramePresent presentEvent = new PlaybackEvents.FramePresent();
+                presentEvent.begin();
+                long frameTimeMs = frame.getTimestampMs();
+                long waitNs = waitForDisplayTime(pool, frame, frameTimeMs);
+                if (waitNs == Long.MIN_VALUE) {
+                    pool.recycle(frame);
+                    continue;
+                }
+                
+                if (FramePacing.shouldDrop(waitNs, frameDurationNs)) {
+                    // If we're more than 2 frames behind, drop this frame
+                    stats.recordDropped();
+                    if (quality.frameDropped(pool.getQueueCapacity())) {
+                        restartForQuality();
+                    }
+                    PlaybackEvents.FrameDrop dropEvent = new PlaybackEvents.FrameDrop();
+                    if (dropEvent.shouldCommit()) {
+                        dropEvent.frameNumber = frame.getFrameNumber();
+                        dropEvent.timestamp = frameTimeMs;
+                        dropEvent.lateness = -waitNs;
+                        dropEvent.commit();
+                    }
+                    pool.recycle(frame);
+                    continue;
+                }
+                
+                // Hand the frame to the painter
+                if (!pool.present(frame)) {
+                    continue;
+                }
+                steppedFrame = null;
+                currentTimeMs = frameTimeMs;
+                maybeStartPreroll(frameTimeMs);
+                maybeRefreshStandby(pool, frameTimeMs);
+                long driftMs = masterClock.getPositionMs() - frameTimeMs;
+                int queueDepth = pool.getQueueDepth();
+                stats.recordPresented(-waitNs, driftMs, queueDepth);
+                if (quality.framePresented(-waitNs, frameDurationNs, queueDepth, pool.getQueueCapacity())) {
+                    restartForQuality();
+                }
+                presentEvent.end();
+                if (presentEvent.shouldCommit()) {
+                    presentEvent.frameNumber = frame.getFrameNumber();
+                    presentEvent.timestamp = frameTimeMs;
+                    presentEvent.lateness = -waitNs;
+                    presentEvent.drift = driftMs;
+                    presentEvent.queueDepth = queueDepth;
+                    presentEvent.commit();
+                }
+                if (videoCanvas != null) {
+                    videoCanvas.render();
+                } else {
+                    SwingUtilities.invokeLater(() -> repaint());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Sleep until the master clock reaches the frame's timestamp. Sleeps in short
+     * slices so that clock corrections and seeks, which reset the clock and flush
+     * the queue, are noticed promptly.
+     *
+     * @return how late the frame is (negative) or 0 once it is due, or
+     * Long.MIN_VALUE if the frame became stale or playback stopped meanwhile
+     */
+    private long waitForDisplayTime(FramePool pool, VideoFrame frame, long frameTimeMs) throws InterruptedException {
+        while (true) {
+            if (awaitResume()) {
+                quality.restart();
+            }
+            if (stopPlayback || pool.isStale(frame)) {
+                return Long.MIN_VALUE;
+            }
+            long waitNs = FramePacing.waitNs(frameTimeMs, masterClock.getPositionMs());
+            if (waitNs <= 0) {
+                return waitNs;
+            }
+            long sliceNs = Math.min(waitNs, MAX_WAIT_SLICE_NS);
+            Thread.sleep(sliceNs / 1_000_000, (int) (sliceNs % 1_000_000));
+        }
+    }
+
+    /**
+     * Smoothed difference between the master clock and the presented frame's timestamp
+     */
+    public double getAvDriftMs() {
+        return stats.getAvDriftMs();
+    }
+    
+    public long getMaxAvDriftMs() {
+        return (long) stats.getAvDriftMaxMs();
+    }
+    
+    /**
+     * Live counters and latency histograms, also registered as an MBean
+     */
+    public PlaybackStats getPlaybackStats() {
+        return stats;
+    }
+    
+    @Override
+    public void setStatsOverlayVisible(boolean visible) {
+        statsOverlayVisible = visible;
+        repaint();
+    }
+    
+    public boolean isStatsOverlayVisible() {
+        return statsOverlayVisible;
+    }
+    
+    private void interruptVideoThreads() {
+        if (decodeThread != null) {
+            decodeThread.interrupt();
+        }
+        if (presentThread != null) {
+            presentThread.interrupt();
+        }
+    }
+    
+    /**
+     * Read one frame from the pipe into the given buffer.
+     * Returns the number of bytes read, or -1 on EOF before any byte of the frame.
+     */
+    private int readFrame(InputStream in, byte[] buffer, int frameSize) throws IOException {
+        int totalRead = 0;
+        while (totalRead < frameSize && !stopPlayback) {
+            int nRead;
+            try {
+                nRead = in.read(buffer, totalRead, frameSize - totalRead);
+            } catch (IOException e) {
+                if (pendingSeekTimeMs.get() < 0) {
+                    throw e;
+                }
+                // The session was destroyed by a seek cancelling it
+                nRead = -1;
+            }
+            if (nRead == -1) {
+                return totalRead == 0 ? -1 : totalRead;
+            }
+            totalRead += nRead;
+        }
+        return totalRead;
+    }
+    
+    /**
+     * Frame queue between the pipe reader and the presenter, or null before the first playback
+     */
+    public FramePool getFramePool() {
+        return framePool;
     }
     
-    private void waitForThreads() {
-        if (decodeThread != null && decodeThread.isAlive()) {
-            try {
-                decodeThread.join(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Reuse the frame pool across restarts as long as the frame size is unchanged
+     */
+    private FramePool obtainFramePool() {
+        FramePool pool = framePool;
+        int width = outputWidth();
+        int height = outputHeight();
+        if (pool == null || !pool.matches(width, height)) {
+            if (pool != null) {
+                pool.close();
+                retiredPool = pool;
             }
+            pool = FramePool.forFrameSize(width, height);
+            framePool = pool;
         }
-        if (audioThread != null && audioThread.isAlive()) {
-            try {
-                audioThread.join(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+        return pool;
+    }
+    
+    /**
+     * Pick the decoder output size: the panel's size in device pixels, so that
+     * HiDPI screens get full detail, but never more than the source provides.
+     * Before the panel is laid out the source size is used.
+     *
+     * @return true if the size changed
+     */
+    private boolean updateDecodeSize() {
+        Dimension size = negotiateDecodeSize(videoWidth, videoHeight, pixelFormat);
+        if (size.width == decodeWidth && size.height == decodeHeight) {
+            return false;
         }
+        decodeWidth = size.width;
+        decodeHeight = size.height;
+        return true;
     }
-
+    
     /**
-     * Start video playback with proper synchronization to master clock
+     * Decode size for a source of the given display size on this panel
      */
-    private void startVideoPlayback() {
-        decodeThread = new Thread(() -> {
-            try {
-                // Calculate frame duration in nanoseconds
-                long frameDurationNs = (long) ((1.0 / actualFrameRate) * 1_000_000_000);
-                
-                while (isPlaying && !stopPlayback) {
-                    List<String> cmd = new ArrayList<>();
-                    cmd.add(ffmpegBinary.getAbsolutePath());
-                    
-                    if (currentTimeMs > 0) {
-                        cmd.add("-ss");
-                        cmd.add(String.valueOf(currentTimeMs / 1000.0));
-                    }
-                    
-                    cmd.add("-i");
-                    cmd.add(currentVideoPath);
-                    cmd.add("-f");
-                    cmd.add("rawvideo");
-                    cmd.add("-pix_fmt");
-                    cmd.add("rgb24");
-                    cmd.add("-vf");
-                    cmd.add("scale=" + videoWidth + ":" + videoHeight);
-                    // Use actual frame rate instead of hardcoded 30
-                    cmd.add("-r");
-                    cmd.add(String.valueOf(actualFrameRate));
-                    cmd.add("-an");
-                    cmd.add("-");
-                    
-                    ProcessBuilder pb = new ProcessBuilder(cmd);
-                    pb.redirectError(ProcessBuilder.Redirect.DISCARD);
-                    ffmpegProcess = pb.start();
-                    System.out.println("[Video] Process started at " + (currentTimeMs / 1000) + "s");
-                    
-                    InputStream in = ffmpegProcess.getInputStream();
-                    int frameSize = videoWidth * videoHeight * 3;
-                    byte[] frameData = new byte[frameSize];
-                    int frameCount = 0;
-                    boolean seekDetected = false;
-                    
-                    while (isPlaying && !stopPlayback && !seekDetected && ffmpegProcess.isAlive()) {
-                        // Check for seek
-                        long pendingSeek = pendingSeekTimeMs.getAndSet(-1);
-                        if (pendingSeek >= 0 && pendingSeek != currentTimeMs) {
-                            System.out.println("[Video] Seek: " + (currentTimeMs / 1000) + "s -> " + (pendingSeek / 1000) + "s");
-                            currentTimeMs = pendingSeek;
-                            seekDetected = true;
-                            
-                            if (ffmpegProcess != null) {
-                                ffmpegProcess.destroyForcibly();
-                            }
-                            
-                            // Restart audio at new position
-                            restartAudio();
-                            
-                            // Reset master clock
-                            playbackStartTime = System.nanoTime();
-                            startPositionMs = currentTimeMs;
-                            
-                            break;
-                        }
-                        
-                        // Calculate expected time based on master clock
-                        long elapsedNs = System.nanoTime() - playbackStartTime;
-                        long expectedTimeMs = startPositionMs + (elapsedNs / 1_000_000);
-                        
-                        // Read frame
-                        int totalRead = 0;
-                        while (totalRead < frameSize && !stopPlayback && !seekDetected) {
-                            int nRead = in.read(frameData, totalRead, frameSize - totalRead);
-                            if (nRead == -1) {
-                                System.out.println("[Video] EOF reached");
-                                stopPlayback = true;
-                                isPlaying = false;
-                                controlBar.setPlaying(false);
-                                return;
-                            }
-                            totalRead += nRead;
-                        }
-                        
-                        if (totalRead < frameSize) {
-                            break;
-                        }
-                        
-                        frameCount++;
-                        
-                        // Update current time from master clock
-                        currentTimeMs = expectedTimeMs;
-                        
-                        // Calculate when this frame should be displayed
-                        long frameTimeMs = startPositionMs + (frameCount * 1000 / (long)actualFrameRate);
-                        long displayTimeNs = playbackStartTime + (frameTimeMs - startPositionMs) * 1_000_000;
-                        long currentNs = System.nanoTime();
-                        long waitNs = displayTimeNs - currentNs;
-                        
-                        // If we're behind, skip sleeping
-                        if (waitNs > 0) {
-                            try {
-                                Thread.sleep(waitNs / 1_000_000, (int)(waitNs % 1_000_000));
-                            } catch (InterruptedException e) {
-                                break;
-                            }
-                        } else if (waitNs < -frameDurationNs * 2) {
-                            // If we're more than 2 frames behind, drop this frame
-                            System.out.println("[Video] Dropping frame " + frameCount + " (late by " + (-waitNs / 1_000_000) + "ms)");
-                            continue;
-                        }
-                        
-                        final byte[] frameCopy = frameData.clone();
-                        
-                        // Render frame
-                        frameProcessingPool.execute(() -> {
-                            try {
-                                BufferedImage frame = new BufferedImage(videoWidth, videoHeight, BufferedImage.TYPE_INT_RGB);
-                                int[] pixels = new int[videoWidth * videoHeight];
-                                
-                                for (int i = 0; i < frameCopy.length; i += 3) {
-                                    int r = frameCopy[i] & 0xFF;
-                                    int g = frameCopy[i + 1] & 0xFF;
-                                    int b = frameCopy[i + 2] & 0xFF;
-                                    pixels[i / 3] = (r << 16) | (g << 8) | b;
-                                }
-                                
-                                frame.setRGB(0, 0, videoWidth, videoHeight, pixels, 0, videoWidth);
-                                currentFrame = frame;
-                                SwingUtilities.invokeLater(() -> repaint());
-                            } catch (Exception e) {
-                                // Ignore
-                            }
-                        });
-                        
-                        if (frameCount % 30 == 0) {
-                            long drift = expectedTimeMs - frameTimeMs;
-                            System.out.println("[Video] Frame " + frameCount + " @ " + (expectedTimeMs / 1000) + "s (drift: " + drift + "ms)");
-                        }
-                    }
-                    
-                    if (!seekDetected) {
-                        break;
-                    }
-                }
-                
-                System.out.println("[Video] Playback ended");
-                if (ffmpegProcess != null) {
-                    ffmpegProcess.destroy();
-                }
-            } catch (Exception e) {
-                System.err.println("[Video] Error: " + e.getMessage());
-                e.printStackTrace();
+    private Dimension negotiateDecodeSize(int sourceWidth, int sourceHeight, DecodeOptions.PixelFormat format) {
+        int width = sourceWidth;
+        int height = sourceHeight;
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (getWidth() > 0 && getHeight() > 0) {
+            double scaleX = gc != null ? gc.getDefaultTransform().getScaleX() : 1.0;
+            double scaleY = gc != null ? gc.getDefaultTransform().getScaleY() : 1.0;
+            width = Math.min(sourceWidth, (int) Math.round(getWidth() * scaleX));
+            height = Math.min(sourceHeight, (int) Math.round(getHeight() * scaleY));
+        }
+        if (format == DecodeOptions.PixelFormat.YUV420P) {
+            // 4:2:0 chroma needs even dimensions
+            width = Math.max(2, width & ~1);
+            height = Math.max(2, height & ~1);
+        }
+        return new Dimension(width, height);
+    }
+    
+    /**
+     * Decoder output size: the negotiated decode size, scaled down while the
+     * quality controller asks for it
+     */
+    private int outputWidth() {
+        return scaledDimension(decodeWidth);
+    }
+    
+    private int outputHeight() {
+        return scaledDimension(decodeHeight);
+    }
+    
+    private int scaledDimension(int size) {
+        double scale = quality.getLevel().getScale();
+        return scale == 1.0 ? size : Math.max(2, (int) (size * scale) & ~1);
+    }
+    
+    /**
+     * Called by the presenter when the quality level changed: restart decoding
+     * at the current position with the new level's settings
+     */
+    private void restartForQuality() {
+        SwingUtilities.invokeLater(() -> {
+            if (isPlaying && !stopPlayback) {
+                startPlayback();
             }
         });
-        decodeThread.setName("FFmpeg-Video");
-        decodeThread.start();
+    }
+    
+    public QualityController.Level getQualityLevel() {
+        return quality.getLevel();
+    }
+    
+    /**
+     * Debounced resize handler: restart decoding at the current position when
+     * the decode size changes during playback
+     */
+    private void renegotiateDecodeSize() {
+        if (updateDecodeSize() && isPlaying) {
+            System.out.println("[Video] Decode size now " + decodeWidth + "x" + decodeHeight);
+            startPlayback();
+        }
     }
 
     /**
-     * Start audio playback
+     * Start audio playback from the session's PCM output, discarding its
+     * first {@code skipBytes}
      */
-    private void startAudioPlayback() {
+    private void startAudioPlayback(DecoderSession source, int skipBytes) {
+        int clockGeneration = masterClock.getGeneration();
+        InputStream audioIn = source.getAudioStream();
+        if (audioIn == null) {
+            // No audio stream: run video on the wall clock straight away
+            masterClock.detach(clockGeneration);
+            return;
+        }
+        
         audioThread = new Thread(() -> {
+            SourceDataLine line = null;
             try {
-                List<String> cmd = new ArrayList<>();
-                cmd.add(ffmpegBinary.getAbsolutePath());
-                
-                if (currentTimeMs > 0) {
-                    cmd.add("-ss");
-                    cmd.add(String.valueOf(currentTimeMs / 1000.0));
+                // A line handed over by the previous playlist item may still be playing its tail
+                line = handoffAudioLine.getAndSet(null);
+                if (line == null) {
+                    line = preparedAudioLine.getAndSet(null);
                 }
-                
-                cmd.add("-analyzeduration");
-                cmd.add("0");
-                cmd.add("-probesize");
-                cmd.add("32");
-                cmd.add("-i");
-                cmd.add(currentVideoPath);
-                cmd.add("-f");
-                cmd.add("s16le");
-                cmd.add("-acodec");
-                cmd.add("pcm_s16le");
-                cmd.add("-ar");
-                cmd.add("44100");
-                cmd.add("-ac");
-                cmd.add("2");
-                cmd.add("-");
-                
-                ProcessBuilder pb = new ProcessBuilder(cmd);
-                pb.redirectError(ProcessBuilder.Redirect.DISCARD);
-                audioProcess = pb.start();
-                
-                AudioFormat audioFormat = new AudioFormat(44100, 16, 2, true, false);
-                audioLine = AudioSystem.getSourceDataLine(audioFormat);
-                audioLine.open(audioFormat);
-                audioLine.start();
+                if (line == null) {
+                    line = openAudioLine();
+                }
+                // The thread only ever touches its own line; audioLine may move on to a newer session's
+                audioLine = line;
+                line.start();
+                long startFrame = line.getLongFramePosition()
+                    + (line.getBufferSize() - line.available()) / line.getFormat().getFrameSize();
                 
                 System.out.println("[Audio] Started at " + (currentTimeMs / 1000) + "s");
                 
-                InputStream audioIn = audioProcess.getInputStream();
                 byte[] audioBuffer = new byte[4096];
                 int bytesRead;
+                for (int skipped = 0; skipped < skipBytes && !stopPlayback; skipped += bytesRead) {
+                    if ((bytesRead = audioIn.read(audioBuffer, 0, Math.min(audioBuffer.length, skipBytes - skipped))) == -1) {
+                        break;
+                    }
+                }
+                
+                // Rate changes restart the session, so the rate is fixed per thread
+                double rate = playbackRate;
+                TimeStretcher stretcher = rate != 1.0 ? new TimeStretcher(DecoderSession.AUDIO_CHANNELS) : null;
+                if (stretcher != null) {
+                    stretcher.setRate(rate);
+                }
                 
-                while (!stopPlayback && (bytesRead = audioIn.read(audioBuffer)) != -1) {
-                    if (audioVolume < 1.0f) {
-                        applyVolume(audioBuffer, bytesRead);
+                audioChain.reset();
+                boolean attached = false;
+                int lineBufferSize = line.getBufferSize();
+                while (!stopPlayback && masterClock.getGeneration() == clockGeneration) {
+                    PlaybackEvents.AudioUnderrun underrunEvent = new PlaybackEvents.AudioUnderrun();
+                    underrunEvent.begin();
+                    if ((bytesRead = audioIn.read(audioBuffer)) == -1) {
+                        break;
+                    }
+                    if (attached && line.available() >= lineBufferSize) {
+                        // Everything written so far has been played out
+                        stats.recordAudioUnderrun();
+                        underrunEvent.end();
+                        if (underrunEvent.shouldCommit()) {
+                            underrunEvent.position = masterClock.getPositionMs();
+                            underrunEvent.commit();
+                        }
+                    }
+                    byte[] block = audioBuffer;
+                    int length = bytesRead;
+                    if (stretcher != null) {
+                        length = stretcher.process(audioBuffer, bytesRead);
+                        block = stretcher.getOutput();
+                        if (length == 0) {
+                            continue;
+                        }
+                    }
+                    audioChain.process(block, length);
+                    if (!writeAudio(line, block, length)) {
+                        break;
+                    }
+                    if (!attached) {
+                        // Audio is flowing: from now on the line drives the master clock
+                        masterClock.attach(line, clockGeneration, startFrame);
+                        attached = true;
                     }
-                    audioLine.write(audioBuffer, 0, bytesRead);
                 }
                 
                 System.out.println("[Audio] Ended");
-                if (audioLine != null && audioLine.isOpen()) {
-                    audioLine.drain();
-                    audioLine.stop();
-                    audioLine.close();
+                if (line.isOpen()) {
+                    boolean current = !stopPlayback && masterClock.getGeneration() == clockGeneration;
+                    if (current && isPrerollReady()) {
+                        // The next playlist item continues on this line without draining it
+                        masterClock.detach(clockGeneration);
+                        handoffAudioLine.set(line);
+                        return;
+                    }
+                    if (current) {
+                        line.drain();
+                    } else {
+                        // Superseded by a seek or stop: cut the stale tail instead of playing it out
+                        line.flush();
+                    }
+                    masterClock.detach(clockGeneration);
+                    line.stop();
+                    line.close();
                 }
                 
             } catch (Exception e) {
-                System.err.println("[Audio] Error: " + e.getMessage());
+                if (!stopPlayback && masterClock.getGeneration() == clockGeneration) {
+                    System.err.println("[Audio] Error: " + e.getMessage());
+                }
+                masterClock.detach(clockGeneration);
+                if (line != null && line.isOpen()) {
+                    line.stop();
+                    line.close();
+                }
             }
         });
         audioThread.setName("FFmpeg-Audio");
         audioThread.start();
     }
     
-    private void restartAudio() {
-        if (audioThread != null && audioThread.isAlive()) {
-            if (audioProcess != null) {
-                audioProcess.destroyForcibly();
-            }
-            try {
-                audioThread.join(200);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Write a block to the line. A pause stops the line, which cuts the write
+     * short; the rest is written on resume.
+     *
+     * @return false if the write was cut short for any other reason
+     */
+    private boolean writeAudio(SourceDataLine line, byte[] block, int length) throws InterruptedException {
+        int written = line.write(block, 0, length);
+        while (written < length && !stopPlayback) {
+            if (!awaitResume()) {
+                return false;
             }
+            written += line.write(block, written, length - written);
+        }
+        return written == length;
+    }
+    
+    /**
+     * Wait for the audio thread of a destroyed session to wind down before a
+     * new one is started. Its line is stopped and flushed so a blocked write
+     * returns, and the thread is interrupted in case it is waiting for a
+     * resume. The wait is bounded since this runs on the EDT; a thread that
+     * outlives it only ever touches its own line and ends on the generation
+     * check.
+     */
+    private void stopAudioThread() {
+        Thread thread = audioThread;
+        if (thread == null || !thread.isAlive()) {
+            return;
+        }
+        SourceDataLine line = audioLine;
+        if (line != null && line.isOpen()) {
+            line.stop();
+            line.flush();
+        }
+        thread.interrupt();
+        try {
+            thread.join(AUDIO_STOP_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void destroySession() {
+        DecoderSession current = session;
+        if (current != null) {
+            current.destroy();
+        }
+    }
+    
+    /**
+     * Apply the cached loudness of the file, or analyse it in the background and
+     * apply the gain once known; the gain stage ramps it in during playback
+     */
+    private void startLoudnessNormalization(File file) {
+        if (!NORMALIZE_LOUDNESS) {
+            return;
         }
-        startAudioPlayback();
+        String path = file.getAbsolutePath();
+        LoudnessMeter cached = LoudnessAnalyzer.cached(file);
+        if (cached != null) {
+            applyLoudness(cached);
+            return;
+        }
+        loudnessAnalyzer.analyze(file, meter -> {
+            if (path.equals(currentVideoPath)) {
+                applyLoudness(meter);
+            }
+        });
     }
     
-    private void applyVolume(byte[] buffer, int length) {
-        for (int i = 0; i < length; i += 2) {
-            int sample = ((buffer[i + 1] & 0xFF) << 8) | (buffer[i] & 0xFF);
-            short shortSample = (short) sample;
-            shortSample = (short) (shortSample * audioVolume);
-            buffer[i] = (byte) (shortSample & 0xFF);
-            buffer[i + 1] = (byte) ((shortSample >> 8) & 0xFF);
+    private void applyLoudness(LoudnessMeter meter) {
+        double loudness = meter.getIntegratedLoudness();
+        if (Double.isInfinite(loudness)) {
+            return; // Silence
         }
+        // Reach the target, but keep the true peak under the ceiling and do not boost without bound
+        double gainDb = TARGET_LOUDNESS - loudness;
+        gainDb = Math.min(gainDb, PEAK_CEILING_DB - meter.getTruePeakDb());
+        gainDb = Math.min(gainDb, MAX_BOOST_DB);
+        normalizationGain.setGain((float) Math.pow(10, gainDb / 20));
+        System.out.println("[Audio] Loudness " + String.format("%.1f LUFS, normalization %+.1f dB", loudness, gainDb));
+    }
+
+    /**
+     * DSP applied to decoded audio before it reaches the line
+     */
+    public AudioChain getAudioChain() {
+        return audioChain;
+    }
+    
+    public void setDownmix(boolean mono) {
+        downmix.setEnabled(mono);
     }
 
     @Override
@@ -484,14 +1590,25 @@ public class FFmpegVideoPlayer extends JPanel implements IVideoPlayer {
         if (isPlaying) {
             isPlaying = false;
             controlBar.setPlaying(false);
-            stopPlayback = true;
             
-            if (ffmpegProcess != null) {
-                ffmpegProcess.destroyForcibly();
-            }
-            if (audioProcess != null) {
-                audioProcess.destroyForcibly();
+            if (PAUSE_IDLE_MS > 0 && session != null && !stopPlayback) {
+                // Stop consuming: the presenter and audio thread wait, the reader
+                // blocks on the full queue and ffmpeg on its full pipes
+                softPaused = true;
+                masterClock.hold();
+                SourceDataLine line = audioLine;
+                if (line != null && line.isOpen()) {
+                    line.stop();
+                }
+                pauseIdleTimer.restart();
+                System.out.println("[FFmpeg] Paused at " + (currentTimeMs / 1000) + "s, decoder kept for "
+                    + (PAUSE_IDLE_MS / 1000) + "s");
+                return;
             }
+            stopPlayback = true;
+            
+            destroySession();
+            interruptVideoThreads();
             
             System.out.println("[FFmpeg] Paused at " + (currentTimeMs / 1000) + "s");
         }
@@ -508,56 +1625,244 @@ public class FFmpegVideoPlayer extends JPanel implements IVideoPlayer {
 
     @Override
     public void seekForward() {
-        seek(currentTimeMs + 10000);
+        seek(seekBaseMs() + SEEK_STEP_MS);
     }
 
     @Override
     public void seekBackward() {
-        seek(Math.max(0, currentTimeMs - 10000));
+        seek(Math.max(0, seekBaseMs() - SEEK_STEP_MS));
+    }
+    
+    /**
+     * Where relative seeks count from: the seek not yet carried out, if any
+     */
+    private long seekBaseMs() {
+        long pending = seekScheduler.getPendingMs();
+        if (pending < 0) {
+            pending = pendingSeekTimeMs.get();
+        }
+        return pending >= 0 ? pending : currentTimeMs;
     }
 
+    /**
+     * Seek, coalesced with the seeks right before and after it
+     */
     @Override
     public void seek(long timeMs) {
-        long newTimeMs = Math.min(timeMs, durationMs);
-        System.out.println("[FFmpeg] Seek to " + (newTimeMs / 1000) + "s");
+        seekScheduler.request(Math.max(0, Math.min(timeMs, durationMs)));
+        repaint();
+    }
+    
+    /**
+     * Show the keyframe thumbnail for the time the slider is dragged to; the
+     * seek follows when the drag ends
+     */
+    @Override
+    public void scrub(long timeMs) {
+        seekScheduler.scrub(Math.max(0, Math.min(timeMs, durationMs)));
+        repaint();
+    }
+    
+    private void seekNow(long timeMs) {
+        System.out.println("[FFmpeg] Seek to " + (timeMs / 1000) + "s");
+        // The paused session holds frames from the old position
+        releasePausedSession();
         
         synchronized (seekLock) {
-            pendingSeekTimeMs.set(newTimeMs);
+            pendingSeekTimeMs.set(timeMs);
+            DecoderSession starting = session;
+            if (sessionStarting && starting != null && timeMs != currentTimeMs) {
+                // Superseded before its first frame: kill it rather than wait for
+                // it, the blocked reader then moves on to the new position
+                System.out.println("[Seek] Cancelling session still starting");
+                starting.destroy();
+            }
         }
     }
 
+    /**
+     * Pause and move by whole frames. Frames come from the decoded-GOP cache;
+     * a miss decodes the GOP around the target once on the step thread, so
+     * stepping back through a GOP needs no further decoding.
+     */
     @Override
-    public void setVolume(int volume) {
-        audioVolume = Math.max(0.0f, Math.min(1.0f, volume / 100.0f));
-        System.out.println("[Audio] Volume: " + volume + "%");
+    public void stepFrame(int frames) {
+        if (durationMs <= 0 || ffmpegBinary == null) {
+            return;
+        }
+        if (isPlaying) {
+            pause();
+        }
+        releasePausedSession();
+        updateDecodeSize();
+        int width = decodeWidth;
+        int height = decodeHeight;
+        stepExecutor.execute(() -> stepFrameNow(frames, width, height));
+    }
+    
+    private void stepFrameNow(int frames, int width, int height) {
+        // A seek made while paused moves the starting point
+        long pendingSeek = pendingSeekTimeMs.getAndSet(-1);
+        VideoFrame shown = steppedFrame;
+        long baseMs = pendingSeek >= 0 ? pendingSeek : shown != null ? shown.getTimestampMs() : currentTimeMs;
+        // Frame timestamps are rounded, so look up the frame nearest the target
+        long targetMs = FramePacing.stepLookupMs(baseMs, frames, actualFrameRate);
+        targetMs = Math.max(0, Math.min(targetMs, durationMs - 1));
         
-        if (audioLine != null && audioLine.isOpen()) {
+        VideoFrame frame = gopCache.find(targetMs, width, height);
+        if (frame == null) {
             try {
-                if (audioLine.isControlSupported(javax.sound.sampled.FloatControl.Type.MASTER_GAIN)) {
-                    javax.sound.sampled.FloatControl gainControl = 
-                        (javax.sound.sampled.FloatControl) audioLine.getControl(
-                            javax.sound.sampled.FloatControl.Type.MASTER_GAIN);
-                    
-                    float dB = audioVolume > 0 ? (float) (20 * Math.log10(audioVolume)) : -80;
-                    dB = Math.max(gainControl.getMinimum(), Math.min(gainControl.getMaximum(), dB));
-                    gainControl.setValue(dB);
+                frame = decodeGop(targetMs, width, height);
+            } catch (IOException e) {
+                System.err.println("[Video] Step failed: " + e.getMessage());
+            }
+        }
+        if (frame == null || isPlaying) {
+            return;
+        }
+        steppedFrame = frame;
+        currentTimeMs = frame.getTimestampMs();
+        SwingUtilities.invokeLater(() -> repaint());
+    }
+    
+    /**
+     * Decode the GOP containing {@code targetMs} into the cache and return the
+     * frame for the target. Without a keyframe index fixed blocks are decoded
+     * with an accurate seek instead.
+     */
+    private VideoFrame decodeGop(long targetMs, int width, int height) throws IOException {
+        KeyframeIndex index = keyframeIndex;
+        long keyframeMs = index != null ? index.keyframeAtOrBefore(targetMs) : -1;
+        long startMs;
+        long endMs;
+        if (keyframeMs >= 0) {
+            startMs = keyframeMs;
+            long next = index.keyframeAfter(targetMs);
+            endMs = next >= 0 ? next : durationMs;
+        } else {
+            startMs = targetMs - targetMs % STEP_BLOCK_MS;
+            endMs = Math.min(startMs + STEP_BLOCK_MS, durationMs);
+        }
+        
+        // A GOP too long for the budget keeps the frames leading up to the
+        // target plus a few after it
+        double frameMs = 1000.0 / actualFrameRate;
+        int maxFrames = gopCache.maxFramesPerGop(width, height);
+        long targetIndex = (long) ((targetMs - startMs) / frameMs);
+        long firstKept = Math.max(0, targetIndex - maxFrames * 3 / 4);
+        
+        DecodeOptions options = new DecodeOptions()
+            .startAt(startMs, keyframeMs)
+            .videoStream(videoStreamIndex())
+            .size(width, height)
+            .pixelFormat(DecodeOptions.PixelFormat.BGR24)
+            .frameRate(actualFrameRate)
+            .audio(false);
+        long startNs = System.nanoTime();
+        DecoderSession gopSession = DecoderSession.start(ffmpegBinary, currentVideoPath, options);
+        List<VideoFrame> frames = new ArrayList<>();
+        int frameSize = options.getFrameSize();
+        try {
+            InputStream in = gopSession.getVideoStream();
+            byte[] skipped = null;
+            for (long n = 0; frames.size() < maxFrames; n++) {
+                long frameTimeMs = FramePacing.frameTimeMs(startMs, n, actualFrameRate);
+                if (frameTimeMs >= endMs) {
+                    break;
                 }
-            } catch (Exception e) {
-                System.err.println("[Audio] Could not set system volume: " + e.getMessage());
+                if (n < firstKept) {
+                    if (skipped == null) {
+                        skipped = new byte[frameSize];
+                    }
+                    if (!readFully(in, skipped, frameSize)) {
+                        break;
+                    }
+                    continue;
+                }
+                VideoFrame frame = gopCache.obtainFrame(width, height);
+                if (!readFully(in, frame.getData(), frameSize)) {
+                    gopCache.release(frame);
+                    break;
+                }
+                frame.setPosition(n, frameTimeMs);
+                frames.add(frame);
+            }
+        } finally {
+            gopSession.destroy();
+        }
+        if (frames.isEmpty()) {
+            return null;
+        }
+        long cachedEndMs = frames.size() >= maxFrames
+            ? startMs + Math.round((firstKept + frames.size()) * frameMs)
+            : endMs;
+        gopCache.put(startMs, cachedEndMs, frames);
+        System.out.println("[Video] Decoded " + frames.size() + " frames at " + startMs + "ms for stepping in "
+            + ((System.nanoTime() - startNs) / 1_000_000) + "ms");
+        return gopCache.find(targetMs, width, height);
+    }
+    
+    private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(buffer, total, length - total);
+            if (n == -1) {
+                return false;
             }
+            total += n;
+        }
+        return true;
+    }
+
+    /**
+     * Change the playback speed, keeping the pitch. The master clock advances
+     * at the new rate and decoding restarts at the current position with
+     * options for that rate, like a seek.
+     */
+    @Override
+    public void setPlaybackRate(double rate) {
+        double clamped = Math.max(MIN_RATE, Math.min(MAX_RATE, rate));
+        if (clamped == playbackRate) {
+            return;
+        }
+        playbackRate = clamped;
+        masterClock.setRate(clamped);
+        System.out.println("[FFmpeg] Playback rate: " + clamped + "x");
+        if (isPlaying) {
+            startPlayback();
+        } else {
+            releasePausedSession();
         }
     }
+    
+    public double getPlaybackRate() {
+        return playbackRate;
+    }
+
+    @Override
+    public void setVolume(int volume) {
+        audioVolume = Math.max(0.0f, Math.min(1.0f, volume / 100.0f));
+        // Ramped over the next block by the gain stage; the line's own gain
+        // control is left alone so the volume is applied exactly once
+        volumeGain.setGain(audioVolume);
+        System.out.println("[Audio] Volume: " + volume + "%");
+    }
 
     @Override
     public void stop() {
         isPlaying = false;
         stopPlayback = true;
         controlBar.setPlaying(false);
-        if (ffmpegProcess != null) {
-            ffmpegProcess.destroy();
-        }
-        if (audioProcess != null) {
-            audioProcess.destroy();
+        pauseIdleTimer.stop();
+        destroySession();
+        interruptVideoThreads();
+        wakePaused();
+        cancelPreroll();
+        standbyPool.close();
+        seekScheduler.cancel();
+        SourceDataLine handedOff = handoffAudioLine.getAndSet(null);
+        if (handedOff != null) {
+            handedOff.close();
         }
         if (audioLine != null && audioLine.isOpen()) {
             try {
@@ -572,6 +1877,9 @@ public class FFmpegVideoPlayer extends JPanel implements IVideoPlayer {
     @Override
     public void dispose() {
         stop();
+        thumbnailEngine.close();
+        loudnessAnalyzer.cancel();
+        stats.unregister();
     }
 
     @Override
@@ -579,35 +1887,129 @@ public class FFmpegVideoPlayer extends JPanel implements IVideoPlayer {
         return isPlaying;
     }    
     
-    @Override
     public boolean isUpdatingUI() {
         return isUpdatingUI;
     }
 
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+        super.repaint(tm, x, y, width, height);
+        // The heavyweight canvas is not painted along with the panel
+        if (videoCanvas != null) {
+            videoCanvas.repaint();
+        }
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        
-        if (currentFrame != null) {
-            g.drawImage(currentFrame, 0, 0, getWidth(), getHeight(), this);
+        if (videoCanvas == null) {
+            paintVideo((Graphics2D) g);
+        }
+    }
+    
+    /**
+     * Draw the current frame, or the poster or a placeholder, with the scrub
+     * preview and statistics on top; on the EDT, or on the presenter thread
+     * when rendering actively
+     */
+    private void paintVideo(Graphics2D g) {
+        FramePool pool = framePool;
+        VideoFrame frame = steppedFrame;
+        if (frame == null) {
+            frame = pool != null ? pool.acquireForDisplay() : null;
+        }
+        if (frame == null && retiredPool != null) {
+            // Keep showing the last frame at the old size until the first new one arrives
+            frame = retiredPool.acquireForDisplay();
+        } else if (frame != null) {
+            retiredPool = null;
+        }
+        if (frame == null && posterFrame != null) {
+            g.drawImage(posterFrame, 0, 0, getWidth(), getHeight(), this);
+        } else if (frame != null) {
+            posterFrame = null;
+            drawFrame(g, frame);
             
-            isUpdatingUI = true;
-            try {
-                controlBar.updateTime(
-                    new SimpleDuration(currentTimeMs),
-                    new SimpleDuration(durationMs)
-                );
-            } finally {
-                isUpdatingUI = false;
+            if (SwingUtilities.isEventDispatchThread()) {
+                updateControlBarTime();
+            } else {
+                SwingUtilities.invokeLater(this::updateControlBarTime);
             }
         } else {
             g.setColor(Color.WHITE);
             g.setFont(new Font("Arial", Font.PLAIN, 16));
-            if (isPlaying) {
+            String loading = loadingName;
+            if (loading != null) {
+                String text = "Loading " + loading + "...";
+                g.drawString(text, (getWidth() - g.getFontMetrics().stringWidth(text)) / 2, getHeight() / 2);
+            } else if (isPlaying) {
                 g.drawString("Loading video...", getWidth() / 2 - 60, getHeight() / 2);
             } else {
                 g.drawString("No video loaded", getWidth() / 2 - 60, getHeight() / 2);
             }
         }
+        long scrubMs = seekScheduler.getScrubMs();
+        ThumbnailEngine.Thumbnail preview = scrubMs >= 0 ? thumbnailEngine.getThumbnail(scrubMs) : null;
+        if (preview != null) {
+            // Keyframe preview while the slider is dragged, the seek follows on release
+            preview.draw(g, 0, 0, getWidth(), getHeight());
+        }
+        if (statsOverlayVisible) {
+            drawStatsOverlay(g);
+        }
+    }
+    
+    private void updateControlBarTime() {
+        isUpdatingUI = true;
+        try {
+            controlBar.updateTime(
+                new SimpleDuration(currentTimeMs),
+                new SimpleDuration(durationMs)
+            );
+        } finally {
+            isUpdatingUI = false;
+        }
+    }
+    
+    private void drawStatsOverlay(Graphics g) {
+        List<String> lines = stats.overlayLines(masterClock.isAudioDriven() ? "audio" : "wall");
+        lines.add("quality " + quality.getLevel() + " (" + outputWidth() + "x" + outputHeight() + ")");
+        g.setFont(STATS_FONT);
+        int lineHeight = g.getFontMetrics().getHeight();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, g.getFontMetrics().stringWidth(line));
+        }
+        g.setColor(STATS_BACKGROUND);
+        g.fillRect(8, 8, width + 16, lines.size() * lineHeight + 12);
+        g.setColor(Color.WHITE);
+        int y = 14 + g.getFontMetrics().getAscent();
+        for (String line : lines) {
+            g.drawString(line, 16, y);
+            y += lineHeight;
+        }
+    }
+    
+    /**
+     * Draw the frame over the whole panel. When the decoder already produced the
+     * panel's device pixel size the image is blitted 1:1 without scaling.
+     * Rendering actively, it is drawn from the canvas's accelerated copy.
+     */
+    private void drawFrame(Graphics2D g, VideoFrame frame) {
+        Image image = videoCanvas != null ? videoCanvas.accelerated(frame) : frame.getImage();
+        AffineTransform transform = g.getTransform();
+        int deviceWidth = (int) Math.round(getWidth() * transform.getScaleX());
+        int deviceHeight = (int) Math.round(getHeight() * transform.getScaleY());
+        if (frame.getWidth() != deviceWidth || frame.getHeight() != deviceHeight) {
+            g.drawImage(image, 0, 0, getWidth(), getHeight(), this);
+        } else if (transform.getScaleX() == 1.0 && transform.getScaleY() == 1.0) {
+            g.drawImage(image, 0, 0, this);
+        } else {
+            Graphics2D device = (Graphics2D) g.create();
+            device.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(), transform.getTranslateY()));
+            device.drawImage(image, 0, 0, this);
+            device.dispose();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package os.org;
+
+/**
+ * Frame timing arithmetic shared by the player's reader and presenter and
+ * by the headless benchmark
+ */
+public final class FramePacing {
+    /** Frames later than this many frame durations are dropped rather than shown */
+    public static final int MAX_LATE_FRAMES = 2;
+
+    private FramePacing() {
+    }
+
+    /**
+     * Presentation time of the n-th frame decoded from a segment starting at
+     * {@code segmentStartMs}, rounded to the millisecond
+     */
+    public static long frameTimeMs(long segmentStartMs, long frameIndex, double frameRate) {
+        return segmentStartMs + Math.round(frameIndex * 1000.0 / frameRate);
+    }
+
+    /**
+     * Time to look up the frame {@code frames} frames away from the one shown
+     * at {@code baseMs}: the target time plus half a frame, so that the last
+     * frame at or before it is the nearest one despite millisecond rounding of
+     * frame timestamps
+     */
+    public static long stepLookupMs(long baseMs, int frames, double frameRate) {
+        double frameMs = 1000.0 / frameRate;
+        return baseMs + Math.round(frames * frameMs) + (long) (frameMs / 2);
+    }
+
+    /**
+     * Spacing of output frames in media time. Above 1x the decoder outputs
+     * {@code frameRate / playbackRate} frames per media second.
+     */
+    public static long frameDurationNs(double frameRate, double playbackRate) {
+        return (long) ((Math.max(1.0, playbackRate) / frameRate) * 1_000_000_000);
+    }
+
+    /**
+     * Time until the frame is due on the clock, negative if it is late
+     */
+    public static long waitNs(long frameTimeMs, long clockPositionMs) {
+        return (frameTimeMs - clockPositionMs) * 1_000_000;
+    }
+
+    public static boolean shouldDrop(long waitNs, long frameDurationNs) {
+        return waitNs < -frameDurationNs * MAX_LATE_FRAMES;
+    }
+}
@@ -0,0 +1,320 @@
+package os.org;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of preallocated frames shared by the pipe reader, the presenter
+ * and the painter. It doubles as the bounded decode-ahead queue between the
+ * reader and the presenter.
+ *
+ * Each frame goes FREE -> DECODING -> QUEUED -> PENDING -> READY -> DISPLAYED -> FREE.
+ * The reader only ever writes into a DECODING frame and the painter only ever
+ * reads the DISPLAYED one, so a frame is never drawn while it is being filled.
+ * When every frame is busy the reader blocks (back-pressure), which in turn
+ * blocks ffmpeg on the pipe.
+ */
+public class FramePool {
+    private static final int DEFAULT_QUEUE_FRAMES = Integer.getInteger("videoplayer.queue.frames", 30);
+    private static final long DEFAULT_QUEUE_BYTES = Long.getLong("videoplayer.queue.mb", 256L) * 1024 * 1024;
+    private static final int MIN_QUEUE_FRAMES = 2;
+    // Frames outside the queue: one DECODING, one PENDING with the presenter, one READY for paint, one DISPLAYED
+    private static final int IN_FLIGHT_FRAMES = 4;
+
+    private final VideoFrame[] frames;
+    private final int width;
+    private final int height;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition frameFreed = lock.newCondition();
+    private final Condition frameQueued = lock.newCondition();
+    private final ArrayDeque<VideoFrame> queue;
+    private VideoFrame ready;
+    private VideoFrame displayed;
+    private long epoch = 0;
+    private boolean primed = false;
+    private boolean endOfStream = false;
+    private boolean closed = false;
+
+    private final AtomicLong starvationCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    public FramePool(int queueCapacity, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.queue = new ArrayDeque<>(queueCapacity);
+        this.frames = new VideoFrame[queueCapacity + IN_FLIGHT_FRAMES];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new VideoFrame(width, height);
+        }
+    }
+
+    /**
+     * Create a pool whose queue holds as many frames as fit in the configured
+     * frame count and memory budget ({@code videoplayer.queue.frames},
+     * {@code videoplayer.queue.mb}).
+     */
+    public static FramePool forFrameSize(int width, int height) {
+        long frameBytes = (long) width * height * 3;
+        long byBudget = DEFAULT_QUEUE_BYTES / Math.max(1, frameBytes);
+        int capacity = (int) Math.max(MIN_QUEUE_FRAMES, Math.min(DEFAULT_QUEUE_FRAMES, byBudget));
+        return new FramePool(capacity, width, height);
+    }
+
+    public boolean matches(int width, int height) {
+        return this.width == width && this.height == height;
+    }
+
+    /**
+     * Take a free frame to decode into, blocking while every frame is busy.
+     *
+     * @return the frame, or null if the pool was closed
+     */
+    public VideoFrame acquireForDecode() throws InterruptedException {
+        lock.lock();
+        try {
+            boolean counted = false;
+            while (!closed) {
+                VideoFrame free = findFree();
+                if (free != null) {
+                    free.state = VideoFrame.State.DECODING;
+                    return free;
+                }
+                if (!counted) {
+                    overflowCount.incrementAndGet();
+                    counted = true;
+                }
+                frameFreed.await();
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append a fully decoded frame to the decode-ahead queue
+     */
+    public void enqueue(VideoFrame frame) {
+        lock.lock();
+        try {
+            if (frame.state != VideoFrame.State.DECODING) {
+                return;
+            }
+            frame.state = VideoFrame.State.QUEUED;
+            frame.epoch = epoch;
+            queue.addLast(frame);
+            primed = true;
+            frameQueued.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the presenter: take the oldest queued frame, waiting up to
+     * {@code timeoutMs} for the reader to produce one.
+     *
+     * @return the frame, or null on timeout, end of stream or close
+     */
+    public VideoFrame takeNext(long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            long remainingNs = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            boolean counted = false;
+            while (!closed) {
+                VideoFrame next = queue.pollFirst();
+                if (next != null) {
+                    next.state = VideoFrame.State.PENDING;
+                    return next;
+                }
+                if (endOfStream || remainingNs <= 0) {
+                    return null;
+                }
+                if (primed && !counted) {
+                    // Queue ran dry during playback rather than while filling up
+                    starvationCount.incrementAndGet();
+                    counted = true;
+                }
+                remainingNs = frameQueued.awaitNanos(remainingNs);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand a frame taken by the presenter over to the painter.
+     *
+     * @return false if the frame was discarded because the queue was flushed
+     * after it had been taken
+     */
+    public boolean present(VideoFrame frame) {
+        lock.lock();
+        try {
+            if (frame.state != VideoFrame.State.PENDING || frame.epoch != epoch) {
+                release(frame);
+                return false;
+            }
+            if (ready != null) {
+                // Superseded before it was ever painted
+                release(ready);
+            }
+            frame.state = VideoFrame.State.READY;
+            ready = frame;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True if the queue was flushed after the presenter took this frame
+     */
+    public boolean isStale(VideoFrame frame) {
+        lock.lock();
+        try {
+            return frame.epoch != epoch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a frame that was taken for decoding or presenting but will not be shown
+     */
+    public void recycle(VideoFrame frame) {
+        lock.lock();
+        try {
+            if (frame.state == VideoFrame.State.DECODING || frame.state == VideoFrame.State.PENDING) {
+                release(frame);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the painter: promote the newest ready frame to DISPLAYED,
+     * releasing the previously displayed one, and return what should be drawn.
+     */
+    public VideoFrame acquireForDisplay() {
+        lock.lock();
+        try {
+            if (ready != null) {
+                if (displayed != null) {
+                    release(displayed);
+                }
+                displayed = ready;
+                displayed.state = VideoFrame.State.DISPLAYED;
+                ready = null;
+            }
+            return displayed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop every queued frame, e.g. after a seek. Frames already taken by the
+     * presenter are rejected when it tries to present them.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            epoch++;
+            VideoFrame frame;
+            while ((frame = queue.pollFirst()) != null) {
+                release(frame);
+            }
+            primed = false;
+            endOfStream = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the reader when the pipe is exhausted; the presenter drains
+     * what is left in the queue and then sees null from {@link #takeNext}.
+     */
+    public void endOfStream() {
+        lock.lock();
+        try {
+            endOfStream = true;
+            frameQueued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True once the reader hit end of stream and every queued frame was taken
+     */
+    public boolean isDrained() {
+        lock.lock();
+        try {
+            return endOfStream && queue.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wake up any waiting reader or presenter; subsequent calls return null
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            frameFreed.signalAll();
+            frameQueued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueCapacity() {
+        return frames.length - IN_FLIGHT_FRAMES;
+    }
+
+    /**
+     * Number of times the presenter found the queue empty during playback
+     */
+    public long getStarvationCount() {
+        return starvationCount.get();
+    }
+
+    /**
+     * Number of times the reader had to wait because the queue was full
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    private void release(VideoFrame frame) {
+        frame.state = VideoFrame.State.FREE;
+        frameFreed.signal();
+    }
+
+    private VideoFrame findFree() {
+        for (VideoFrame frame : frames) {
+            if (frame.state == VideoFrame.State.FREE) {
+                return frame;
+            }
+        }
+        return null;
+    }
+}
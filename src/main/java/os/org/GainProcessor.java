@@ -0,0 +1,50 @@
+package os.org;
+
+/**
+ * Linear gain that ramps from the previous to the new value across one block,
+ * so volume changes do not click
+ */
+public class GainProcessor implements AudioProcessor {
+    private volatile float target = 1.0f;
+    private float current = 1.0f;
+
+    public void setGain(float gain) {
+        this.target = Math.max(0f, gain);
+    }
+
+    public float getGain() {
+        return target;
+    }
+
+    @Override
+    public boolean isActive() {
+        return target != 1.0f || current != 1.0f;
+    }
+
+    @Override
+    public void process(float[] samples, int frames, int channels) {
+        float end = target;
+        float start = current;
+        if (start == end) {
+            int n = frames * channels;
+            for (int i = 0; i < n; i++) {
+                samples[i] *= end;
+            }
+            return;
+        }
+        float step = (end - start) / frames;
+        float gain = start;
+        for (int f = 0, i = 0; f < frames; f++) {
+            gain += step;
+            for (int c = 0; c < channels; c++, i++) {
+                samples[i] *= gain;
+            }
+        }
+        current = end;
+    }
+
+    @Override
+    public void reset() {
+        current = target;
+    }
+}
@@ -0,0 +1,163 @@
+package os.org;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoded frames of recently stepped GOPs, kept under a byte budget so that
+ * single-frame stepping, backwards in particular, costs one decode per GOP
+ * instead of one per frame. Each GOP may take at most half the budget, so
+ * the current GOP and its neighbour always fit together; a longer GOP is
+ * cached as the window of frames leading up to the requested one.
+ */
+public class GopCache {
+    private static final long DEFAULT_BUDGET_BYTES = Long.getLong("videoplayer.gop.mb", 192L) * 1024 * 1024;
+
+    private final long budgetBytes;
+    private final Map<Long, Gop> gops = new LinkedHashMap<>(8, 0.75f, true);
+    private final Deque<VideoFrame> spare = new ArrayDeque<>();
+    private long usedBytes = 0;
+    private int width;
+    private int height;
+
+    public GopCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Cache sized from the {@code videoplayer.gop.mb} property, 192 MB by default
+     */
+    public static GopCache configured() {
+        return new GopCache(DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * Most frames a single GOP may hold at the given frame size
+     */
+    public int maxFramesPerGop(int width, int height) {
+        return (int) Math.max(1, budgetBytes / 2 / ((long) width * height * 3));
+    }
+
+    /**
+     * Cached frame showing {@code timeMs}: the last frame at or before it
+     * within a cached range, or null if no cached range covers it
+     */
+    public synchronized VideoFrame find(long timeMs, int width, int height) {
+        if (width != this.width || height != this.height) {
+            return null;
+        }
+        for (Map.Entry<Long, Gop> entry : gops.entrySet()) {
+            Gop gop = entry.getValue();
+            if (timeMs >= gop.firstMs() && timeMs < gop.endMs) {
+                gops.get(entry.getKey()); // Touch for LRU order
+                return gop.frameAt(timeMs);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Frame to decode into, reusing one from an evicted GOP when possible
+     */
+    public synchronized VideoFrame obtainFrame(int width, int height) {
+        if (width == this.width && height == this.height && !spare.isEmpty()) {
+            return spare.pop();
+        }
+        return new VideoFrame(width, height);
+    }
+
+    /**
+     * Give back a frame that was obtained but not stored in a GOP
+     */
+    public synchronized void release(VideoFrame frame) {
+        if (frame.getWidth() == width && frame.getHeight() == height) {
+            spare.push(frame);
+        }
+    }
+
+    /**
+     * Store the frames decoded from the GOP starting at {@code keyframeMs};
+     * {@code endMs} is where the next GOP or the decoded window ends
+     */
+    public synchronized void put(long keyframeMs, long endMs, List<VideoFrame> frames) {
+        if (frames.isEmpty()) {
+            return;
+        }
+        VideoFrame first = frames.get(0);
+        if (first.getWidth() != width || first.getHeight() != height) {
+            clear();
+            width = first.getWidth();
+            height = first.getHeight();
+        }
+        Gop replaced = gops.remove(keyframeMs);
+        if (replaced != null) {
+            evict(replaced);
+        }
+        Gop gop = new Gop(endMs, frames.toArray(new VideoFrame[0]));
+        gops.put(keyframeMs, gop);
+        usedBytes += gop.bytes();
+
+        Iterator<Gop> it = gops.values().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Gop eldest = it.next();
+            if (eldest == gop) {
+                break;
+            }
+            it.remove();
+            evict(eldest);
+        }
+    }
+
+    public synchronized void clear() {
+        gops.clear();
+        spare.clear();
+        usedBytes = 0;
+    }
+
+    private void evict(Gop gop) {
+        usedBytes -= gop.bytes();
+        // Spare frames only need to cover one GOP's worth of decoding
+        for (VideoFrame frame : gop.frames) {
+            if (spare.size() >= maxFramesPerGop(width, height)) {
+                break;
+            }
+            spare.push(frame);
+        }
+    }
+
+    private static class Gop {
+        final long endMs;
+        final VideoFrame[] frames;
+
+        Gop(long endMs, VideoFrame[] frames) {
+            this.endMs = endMs;
+            this.frames = frames;
+        }
+
+        long firstMs() {
+            return frames[0].getTimestampMs();
+        }
+
+        long bytes() {
+            return (long) frames.length * frames[0].getData().length;
+        }
+
+        VideoFrame frameAt(long timeMs) {
+            int lo = 0;
+            int hi = frames.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (frames[mid].getTimestampMs() <= timeMs) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return frames[lo];
+        }
+    }
+}
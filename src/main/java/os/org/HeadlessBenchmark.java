@@ -0,0 +1,447 @@
+package os.org;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code --bench <file>}: runs the player's decode, convert and pace pipeline
+ * without a window and prints the results as JSON on stdout.
+ *
+ * The reader and presenter mirror FFmpegVideoPlayer's: one DecoderSession per
+ * run, frames read into a {@link FramePool} (through {@link YuvConverter}
+ * for yuv420p) and paced with {@link FramePacing}. The painter is replaced by
+ * a null sink that takes each presented frame straight away; audio is read
+ * and discarded. Unpaced (the default) measures sustained decode throughput,
+ * {@code --paced} plays in real time on the wall clock and counts drops.
+ * Seek latency is measured to the first frame at fixed pseudo-random
+ * positions, so runs on the same file are comparable across commits.
+ *
+ * Options: {@code --seconds N} media seconds to decode (20), {@code --seeks N}
+ * (20), {@code --size WxH} output size (source size), {@code --pixfmt
+ * bgr24|yuv420p}, {@code --paced}. Log output goes to stderr.
+ */
+public class HeadlessBenchmark {
+    private static final long SEEK_SEED = 42;
+
+    private final File file;
+    private double seconds = 20;
+    private int seeks = 20;
+    private int width = -1;
+    private int height = -1;
+    private DecodeOptions.PixelFormat pixelFormat = DecodeOptions.PixelFormat.configured();
+    private boolean paced = false;
+
+    private File ffmpegBinary;
+    private File ffprobeBinary;
+    private MediaInfo info;
+    private KeyframeIndex index;
+    private double frameRate = 30.0;
+
+    // Results of the playback run, written by the reader and presenter threads
+    private volatile long bytesRead;
+    private volatile long readNs;
+    private volatile long convertNs;
+    private volatile long framesPresented;
+    private volatile long framesDropped;
+    private volatile long firstFrameNs = -1;
+    private final AtomicLong workerAllocatedBytes = new AtomicLong();
+
+    public HeadlessBenchmark(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Entry point for {@code --bench}; args start after the flag
+     */
+    public static int run(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: --bench <file> [--seconds N] [--seeks N] [--size WxH] [--pixfmt bgr24|yuv420p] [--paced]");
+            return 2;
+        }
+        HeadlessBenchmark bench = new HeadlessBenchmark(new File(args[0]));
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds":
+                    bench.seconds = Double.parseDouble(args[++i]);
+                    break;
+                case "--seeks":
+                    bench.seeks = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    String[] size = args[++i].split("x");
+                    bench.width = Integer.parseInt(size[0]);
+                    bench.height = Integer.parseInt(size[1]);
+                    break;
+                case "--pixfmt":
+                    bench.pixelFormat = args[++i].equalsIgnoreCase("yuv420p")
+                        ? DecodeOptions.PixelFormat.YUV420P : DecodeOptions.PixelFormat.BGR24;
+                    break;
+                case "--paced":
+                    bench.paced = true;
+                    break;
+                default:
+                    System.err.println("[Bench] Unknown option: " + args[i]);
+                    return 2;
+            }
+        }
+
+        // Keep stdout for the JSON only
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        try {
+            String json = bench.execute();
+            stdout.println(json);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("[Bench] Failed: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    private String execute() throws Exception {
+        if (!file.isFile()) {
+            throw new IOException("No such file: " + file);
+        }
+        ffmpegBinary = FFmpegDownloader.getFFmpegBinary();
+        ffprobeBinary = FFmpegDownloader.getFFprobeBinary(ffmpegBinary);
+
+        long t0 = System.nanoTime();
+        info = MediaProber.probe(ffprobeBinary, file);
+        long probeNs = System.nanoTime() - t0;
+        MediaInfo.StreamInfo video = info.getVideoStream();
+        if (video == null) {
+            throw new IOException("No video stream");
+        }
+        if (video.getFrameRate() > 0) {
+            frameRate = video.getFrameRate();
+        }
+        if (width <= 0) {
+            width = video.getDisplayWidth();
+            height = video.getDisplayHeight();
+        }
+        if (pixelFormat == DecodeOptions.PixelFormat.YUV420P) {
+            width &= ~1;
+            height &= ~1;
+        }
+
+        t0 = System.nanoTime();
+        index = KeyframeIndex.loadOrBuild(ffprobeBinary, file, video.getIndex());
+        long indexNs = System.nanoTime() - t0;
+
+        long[] alloc = new long[1];
+        double elapsedSeconds = playback(alloc);
+        long[] seekNs = measureSeeks();
+
+        Json json = new Json();
+        json.put("file", file.getName());
+        json.put("java", System.getProperty("java.version"));
+        json.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        json.put("cpus", Runtime.getRuntime().availableProcessors());
+        json.put("resolution", width + "x" + height);
+        json.put("pixelFormat", pixelFormat.getFfmpegName());
+        json.put("sourceFps", frameRate);
+        json.put("paced", paced);
+        json.put("probeMs", probeNs / 1e6);
+        json.put("keyframeIndexMs", indexNs / 1e6);
+        json.put("frames", framesPresented);
+        json.put("elapsedSeconds", elapsedSeconds);
+        json.put("fps", framesPresented / elapsedSeconds);
+        json.put("firstFrameMs", firstFrameNs / 1e6);
+        long decoded = Math.max(1, framesPresented + framesDropped);
+        json.put("readMsPerFrame", readNs / 1e6 / decoded);
+        json.put("convertMsPerFrame", convertNs / 1e6 / decoded);
+        json.put("pipeMBps", bytesRead / (1024.0 * 1024.0) / elapsedSeconds);
+        json.put("droppedFrames", framesDropped);
+        json.put("allocMBps", alloc[0] / (1024.0 * 1024.0) / elapsedSeconds);
+        json.put("allocBytesPerFrame", alloc[0] / decoded);
+        json.putSeek(seekNs);
+        return json.toString();
+    }
+
+    /**
+     * Decode {@link #seconds} of media from the start through the frame pool
+     *
+     * @param alloc receives the bytes allocated by the reader and presenter,
+     * which each sample their own count before they return
+     * @return wall time of the run from the first frame in seconds; the
+     * startup before it is reported as firstFrameMs
+     */
+    private double playback(long[] alloc) throws Exception {
+        FramePool pool = FramePool.forFrameSize(width, height);
+        DecodeOptions options = new DecodeOptions()
+            .videoStream(info.getVideoStream().getIndex())
+            .size(width, height)
+            .pixelFormat(pixelFormat)
+            .frameRate(frameRate)
+            .audio(info.hasAudio());
+        long endMs = (long) (seconds * 1000);
+        SystemClock clock = new SystemClock();
+
+        long startNs = System.nanoTime();
+        DecoderSession session = DecoderSession.start(ffmpegBinary, file.getAbsolutePath(), options);
+        Thread audio = discardAudio(session);
+        Thread reader = new Thread(() -> read(session, pool, clock, endMs, startNs), "Bench-Reader");
+        Thread presenter = new Thread(() -> present(pool, clock), "Bench-Presenter");
+        workerAllocatedBytes.set(0);
+        reader.start();
+        presenter.start();
+
+        reader.join();
+        presenter.join();
+        long firstNs = firstFrameNs >= 0 ? firstFrameNs : 0;
+        double elapsed = (System.nanoTime() - startNs - firstNs) / 1e9;
+        alloc[0] = workerAllocatedBytes.get();
+        session.destroy();
+        if (audio != null) {
+            audio.join(1000);
+        }
+        pool.close();
+        return elapsed;
+    }
+
+    private void read(DecoderSession session, FramePool pool, SystemClock clock, long endMs, long startNs) {
+        long allocStart = currentThreadAllocatedBytes();
+        DecodeOptions options = session.getOptions();
+        int frameSize = options.getFrameSize();
+        boolean planar = options.getPixelFormat() == DecodeOptions.PixelFormat.YUV420P;
+        byte[] yuv = planar ? new byte[frameSize] : null;
+        YuvConverter converter = planar ? new YuvConverter() : null;
+        MediaInfo.StreamInfo video = info.getVideoStream();
+        YuvConverter.Matrix matrix = YuvConverter.Matrix.forSource(video.getColorSpace(), video.getHeight());
+        InputStream in = session.getVideoStream();
+        try {
+            for (long n = 0; ; n++) {
+                long frameTimeMs = FramePacing.frameTimeMs(0, n, options.getFrameRate());
+                if (frameTimeMs >= endMs) {
+                    break;
+                }
+                VideoFrame frame = pool.acquireForDecode();
+                if (frame == null) {
+                    break;
+                }
+                long t = System.nanoTime();
+                boolean complete = readFully(in, planar ? yuv : frame.getData(), frameSize);
+                readNs += System.nanoTime() - t;
+                if (!complete) {
+                    pool.recycle(frame);
+                    break;
+                }
+                bytesRead += frameSize;
+                if (n == 0) {
+                    firstFrameNs = System.nanoTime() - startNs;
+                }
+                if (planar) {
+                    t = System.nanoTime();
+                    converter.convert(yuv, frame.getData(), options.getWidth(), options.getHeight(), matrix);
+                    convertNs += System.nanoTime() - t;
+                }
+                frame.setPosition(n, frameTimeMs);
+                if (n == 0) {
+                    // As in the player, the clock starts with the first frame, so
+                    // process start-up does not count against pacing
+                    clock.reset(0);
+                }
+                pool.enqueue(frame);
+            }
+        } catch (IOException e) {
+            System.err.println("[Bench] Read failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.endOfStream();
+            recordAllocation(allocStart);
+        }
+    }
+
+    private void present(FramePool pool, SystemClock clock) {
+        long allocStart = currentThreadAllocatedBytes();
+        long frameDurationNs = FramePacing.frameDurationNs(frameRate, 1.0);
+        try {
+            while (true) {
+                VideoFrame frame = pool.takeNext(100);
+                if (frame == null) {
+                    if (pool.isDrained()) {
+                        return;
+                    }
+                    continue;
+                }
+                if (paced) {
+                    long waitNs = FramePacing.waitNs(frame.getTimestampMs(), clock.getPositionMs());
+                    if (FramePacing.shouldDrop(waitNs, frameDurationNs)) {
+                        framesDropped++;
+                        pool.recycle(frame);
+                        continue;
+                    }
+                    if (waitNs > 0) {
+                        Thread.sleep(waitNs / 1_000_000, (int) (waitNs % 1_000_000));
+                    }
+                }
+                if (pool.present(frame)) {
+                    // Null sink: the "painter" takes every frame at once
+                    pool.acquireForDisplay();
+                    framesPresented++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            recordAllocation(allocStart);
+        }
+    }
+
+    private static Thread discardAudio(DecoderSession session) {
+        InputStream audio = session.getAudioStream();
+        if (audio == null) {
+            return null;
+        }
+        Thread t = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try {
+                while (audio.read(buffer) != -1) {
+                    // Discard
+                }
+            } catch (IOException e) {
+                // Session destroyed
+            }
+        }, "Bench-Audio");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Time from spawning a session at a keyframe-aligned position to its first
+     * frame, at positions drawn from a fixed seed
+     */
+    private long[] measureSeeks() throws IOException {
+        long durationMs = info.getDurationMs();
+        if (seeks <= 0 || durationMs <= 2000) {
+            return new long[0];
+        }
+        Random random = new Random(SEEK_SEED);
+        long[] latencies = new long[seeks];
+        byte[] buffer = new byte[pixelFormat.frameSize(width, height)];
+        for (int i = 0; i < seeks; i++) {
+            long targetMs = (long) (random.nextDouble() * (durationMs - 1000));
+            long keyframeMs = index != null ? index.keyframeAtOrBefore(targetMs) : -1;
+            DecodeOptions options = new DecodeOptions()
+                .startAt(targetMs, keyframeMs)
+                .videoStream(info.getVideoStream().getIndex())
+                .size(width, height)
+                .pixelFormat(pixelFormat)
+                .frameRate(frameRate)
+                .audio(false);
+            long t = System.nanoTime();
+            DecoderSession session = DecoderSession.start(ffmpegBinary, file.getAbsolutePath(), options);
+            try {
+                readFully(session.getVideoStream(), buffer, buffer.length);
+                latencies[i] = System.nanoTime() - t;
+            } finally {
+                session.destroy();
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * Add what the calling worker allocated since {@code allocStart}. Must run
+     * on the worker itself: HotSpot reports -1 once a thread has ended.
+     */
+    private void recordAllocation(long allocStart) {
+        long allocEnd = currentThreadAllocatedBytes();
+        if (allocStart >= 0 && allocEnd >= allocStart) {
+            workerAllocatedBytes.addAndGet(allocEnd - allocStart);
+        }
+    }
+
+    /**
+     * @return bytes allocated so far by the calling thread, or -1 if the JVM
+     * cannot tell
+     */
+    private static long currentThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = in.read(buffer, total, length - total);
+            if (n == -1) {
+                return false;
+            }
+            total += n;
+        }
+        return true;
+    }
+
+    /**
+     * Flat JSON object with locale-independent number formatting
+     */
+    private static class Json {
+        private final StringBuilder sb = new StringBuilder("{");
+
+        void put(String key, String value) {
+            key(key);
+            sb.append('"').append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+
+        void put(String key, double value) {
+            key(key);
+            sb.append(Double.isFinite(value) ? String.format(Locale.ROOT, "%.3f", value) : "null");
+        }
+
+        void put(String key, long value) {
+            key(key);
+            sb.append(value);
+        }
+
+        void put(String key, boolean value) {
+            key(key);
+            sb.append(value);
+        }
+
+        void putSeek(long[] sortedNs) {
+            key("seek");
+            sb.append("{\"count\":").append(sortedNs.length);
+            if (sortedNs.length > 0) {
+                sb.append(String.format(Locale.ROOT, ",\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f",
+                    percentile(sortedNs, 50) / 1e6, percentile(sortedNs, 90) / 1e6,
+                    percentile(sortedNs, 99) / 1e6, sortedNs[sortedNs.length - 1] / 1e6));
+            }
+            sb.append('}');
+        }
+
+        private static long percentile(long[] sorted, int p) {
+            int i = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+        }
+
+        private void key(String key) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append('"').append(key).append("\":");
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString() + "}";
+        }
+    }
+}
@@ -1,20 +1,57 @@
 package os.org;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Common interface for video players
  * Allows switching between different backend implementations
  */
 public interface IVideoPlayer {
-    void loadVideo(File file);
+    /**
+     * Playlist notifications, delivered on the EDT
+     */
+    interface PlaybackListener {
+        /** Playback moved on to the pre-rolled next video without a reload */
+        void videoStarted(File file);
+        /** The end of the video was reached and nothing follows it */
+        void playbackEnded();
+    }
+
+    /**
+     * Start loading a video in the background. The future completes once it can
+     * be played and is cancelled when another video is loaded before that.
+     */
+    CompletableFuture<Void> loadVideo(File file);
+    /**
+     * Video to continue with gaplessly when the current one ends, or null
+     */
+    void setNextVideo(File file);
+    void setPlaybackListener(PlaybackListener listener);
     void play();
     void pause();
     void togglePlayPause();
     void seekForward();
     void seekBackward();
     void seek(long timeMs);
+    /**
+     * Preview the given time while the time slider is dragged; the drag ends
+     * with a {@link #seek(long)}
+     */
+    void scrub(long timeMs);
+    /**
+     * Pause and move by the given number of frames, negative to step back
+     */
+    void stepFrame(int frames);
+    /**
+     * Playback speed, 1.0 being normal; audio keeps its pitch
+     */
+    void setPlaybackRate(double rate);
     void setVolume(int volume);
+    /**
+     * Show or hide live playback statistics over the video
+     */
+    void setStatsOverlayVisible(boolean visible);
     void stop();
     void dispose();
     boolean isPlaying();
@@ -0,0 +1,179 @@
+package os.org;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Sorted keyframe timestamps of a file's video stream.
+ *
+ * Built once per file from ffprobe packet flags, which only needs demuxing,
+ * not decoding, and persisted under ~/.videoplayer/index so later sessions
+ * load it instantly. Times are relative to the file's start_time, as input
+ * -ss values are, so files that do not start at zero (MPEG-TS, trimmed MP4)
+ * seek to the right place.
+ */
+public class KeyframeIndex {
+    private static final int MAGIC = 0x4B464932; // "KFI2", start_time relative
+    private static final String CACHE_AREA = "index";
+
+    private final long[] keyframesMs;
+
+    KeyframeIndex(long[] keyframesMs) {
+        this.keyframesMs = keyframesMs;
+    }
+
+    /**
+     * Load the cached index for the file, or build and cache it with ffprobe.
+     * This can take a while for long files and is meant to run in the background.
+     *
+     * @param streamIndex absolute index of the probed video stream, or -1 for
+     * the first video stream, which may be attached cover art
+     */
+    public static KeyframeIndex loadOrBuild(File ffprobeBinary, File videoFile, int streamIndex)
+            throws IOException, InterruptedException {
+        Path cacheFile = MediaCache.fileFor(CACHE_AREA, videoFile, ".kfi");
+        if (Files.exists(cacheFile)) {
+            try {
+                return read(cacheFile);
+            } catch (IOException e) {
+                System.err.println("[Index] Ignoring unreadable cache: " + e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        KeyframeIndex index = build(ffprobeBinary, videoFile, streamIndex);
+        System.out.println("[Index] " + index.size() + " keyframes indexed in "
+            + ((System.nanoTime() - start) / 1_000_000) + "ms");
+        try {
+            index.write(cacheFile);
+        } catch (IOException e) {
+            System.err.println("[Index] Could not cache index: " + e.getMessage());
+        }
+        return index;
+    }
+
+    private static KeyframeIndex build(File ffprobeBinary, File videoFile, int streamIndex)
+            throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(
+            ffprobeBinary.getAbsolutePath(),
+            "-v", "error",
+            "-select_streams", streamIndex >= 0 ? String.valueOf(streamIndex) : "v:0",
+            "-show_entries", "packet=pts_time,flags:format=start_time",
+            "-of", "csv=p=0",
+            videoFile.getAbsolutePath()
+        );
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = pb.start();
+
+        long[] times = new long[1024];
+        int count = 0;
+        long startTimeMs = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    process.destroyForcibly();
+                    throw new InterruptedException();
+                }
+                // "pts_time,flags", e.g. "12.345000,K_", then the format's "start_time"
+                int comma = line.indexOf(',');
+                if (comma < 0) {
+                    try {
+                        startTimeMs = Math.round(Double.parseDouble(line.trim()) * 1000);
+                    } catch (NumberFormatException e) {
+                        // start_time is N/A for some containers
+                    }
+                    continue;
+                }
+                if (comma == 0 || line.indexOf('K', comma) < 0) {
+                    continue;
+                }
+                try {
+                    long timeMs = Math.round(Double.parseDouble(line.substring(0, comma)) * 1000);
+                    if (count == times.length) {
+                        times = Arrays.copyOf(times, count * 2);
+                    }
+                    times[count++] = timeMs;
+                } catch (NumberFormatException e) {
+                    // pts_time is N/A for some packets
+                }
+            }
+        }
+        process.waitFor();
+
+        // Packets come in decode order, which is not always presentation order
+        long[] keyframes = Arrays.copyOf(times, count);
+        for (int i = 0; i < count; i++) {
+            keyframes[i] = Math.max(0, keyframes[i] - startTimeMs);
+        }
+        Arrays.sort(keyframes);
+        return new KeyframeIndex(keyframes);
+    }
+
+    private static KeyframeIndex read(Path cacheFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("bad header");
+            }
+            long[] keyframes = new long[in.readInt()];
+            for (int i = 0; i < keyframes.length; i++) {
+                keyframes[i] = in.readLong();
+            }
+            return new KeyframeIndex(keyframes);
+        }
+    }
+
+    private void write(Path cacheFile) throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(keyframesMs.length);
+            for (long time : keyframesMs) {
+                out.writeLong(time);
+            }
+        }
+        Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Nearest keyframe at or before the given time, or -1 if there is none
+     */
+    public long keyframeAtOrBefore(long timeMs) {
+        int i = Arrays.binarySearch(keyframesMs, timeMs);
+        if (i >= 0) {
+            return keyframesMs[i];
+        }
+        int insertion = -i - 1;
+        return insertion > 0 ? keyframesMs[insertion - 1] : -1;
+    }
+
+    /**
+     * First keyframe strictly after the given time, or -1 if there is none
+     */
+    public long keyframeAfter(long timeMs) {
+        int i = Arrays.binarySearch(keyframesMs, timeMs);
+        int next = i >= 0 ? i + 1 : -i - 1;
+        return next < keyframesMs.length ? keyframesMs[next] : -1;
+    }
+
+    public int size() {
+        return keyframesMs.length;
+    }
+
+    public long get(int i) {
+        return keyframesMs[i];
+    }
+}
@@ -0,0 +1,103 @@
+package os.org;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of non-negative long values, in the manner of
+ * HdrHistogram: exact below 32, then 16 linear buckets per power of two, so
+ * any recorded value is reported within about 6%. Recording is a couple of
+ * shifts and one atomic increment, cheap enough for every frame.
+ *
+ * Values up to 2^40 are tracked (12 days in microseconds); larger ones are
+ * clamped. Readers may see a recording half applied, which only matters for
+ * the sample in flight.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_SHIFT = 35;
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = LINEAR + MAX_SHIFT * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long v = Math.max(0, Math.min(value, MAX_VALUE));
+        counts.incrementAndGet(bucketOf(v));
+        count.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Smallest value that at least {@code percentile}% of the recordings do
+     * not exceed, as the upper bound of its bucket; 0 when empty
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucketOf(long v) {
+        if (v < LINEAR) {
+            return (int) v;
+        }
+        // Shift that brings v into [16, 32)
+        int shift = 63 - Long.numberOfLeadingZeros(v) - 4;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (v >>> shift) - SUB_BUCKETS;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,247 @@
+package os.org;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Background EBU R128 analysis of a file's audio, cached per file under
+ * ~/.videoplayer/loudness.
+ *
+ * Only the first audio stream is decoded ({@code -vn}, single thread) on one
+ * low-priority thread. The meter state is saved periodically and when the
+ * analysis is cancelled, so the next run resumes from there. While playback
+ * is running the analysis is throttled to a few times real time so that it
+ * never competes with the playback decoder.
+ */
+public class LoudnessAnalyzer {
+    private static final String CACHE_AREA = "loudness";
+    private static final int CHUNK_FRAMES = LoudnessMeter.SAMPLE_RATE / 10;
+    private static final double BUSY_SPEED = 8.0; // x real time while playing
+    private static final long SAVE_INTERVAL_NS = 5_000_000_000L;
+
+    /**
+     * State of one analysis run, so a cancelled run winding down on its own
+     * never touches the one that replaced it
+     */
+    private static final class Run {
+        volatile Process process;
+        volatile boolean cancelled;
+    }
+
+    private final File ffmpegBinary;
+    private final BooleanSupplier playbackBusy;
+    private Thread worker;
+    private Run current;
+
+    public LoudnessAnalyzer(File ffmpegBinary, BooleanSupplier playbackBusy) {
+        this.ffmpegBinary = ffmpegBinary;
+        this.playbackBusy = playbackBusy;
+    }
+
+    /**
+     * Finished measurement from the cache, or null if the file has not been
+     * fully analysed yet
+     */
+    public static LoudnessMeter cached(File file) {
+        LoudnessMeter meter = load(MediaCache.fileFor(CACHE_AREA, file, ".r128"));
+        return meter != null && meter.isComplete() ? meter : null;
+    }
+
+    /**
+     * Analyse the file in the background, resuming any earlier partial run, and
+     * hand the finished meter to {@code onComplete} on the analysis thread.
+     * Cancels the analysis of any other file.
+     */
+    public synchronized void analyze(File file, Consumer<LoudnessMeter> onComplete) {
+        cancel();
+        if (ffmpegBinary == null) {
+            return;
+        }
+        Run run = new Run();
+        current = run;
+        worker = new Thread(() -> run(file, onComplete, run), "Loudness-Analysis");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    /**
+     * Stop the running analysis without waiting for it, as this is called on
+     * the EDT; the worker winds down by itself and saves its progress for
+     * next time
+     */
+    public synchronized void cancel() {
+        Run run = current;
+        if (run != null) {
+            run.cancelled = true;
+            Process running = run.process;
+            if (running != null) {
+                running.destroy();
+            }
+            current = null;
+        }
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private void run(File file, Consumer<LoudnessMeter> onComplete, Run run) {
+        Path cacheFile = MediaCache.fileFor(CACHE_AREA, file, ".r128");
+        LoudnessMeter meter = load(cacheFile);
+        if (meter == null) {
+            meter = new LoudnessMeter();
+        }
+        if (meter.isComplete()) {
+            onComplete.accept(meter);
+            return;
+        }
+        long resumeMs = meter.getPositionMs();
+        if (resumeMs > 0) {
+            System.out.println("[Loudness] Resuming " + file.getName() + " at " + (resumeMs / 1000) + "s");
+        }
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(ffmpegBinary.getAbsolutePath());
+        cmd.add("-v");
+        cmd.add("error");
+        cmd.add("-threads");
+        cmd.add("1");
+        if (resumeMs > 0) {
+            cmd.add("-ss");
+            cmd.add(String.valueOf(resumeMs / 1000.0));
+        }
+        cmd.add("-i");
+        cmd.add(file.getAbsolutePath());
+        cmd.add("-vn");
+        cmd.add("-sn");
+        cmd.add("-dn");
+        cmd.add("-map");
+        cmd.add("0:a:0");
+        cmd.add("-ac");
+        cmd.add(String.valueOf(LoudnessMeter.CHANNELS));
+        cmd.add("-ar");
+        cmd.add(String.valueOf(LoudnessMeter.SAMPLE_RATE));
+        cmd.add("-f");
+        cmd.add("f32le");
+        cmd.add("-");
+
+        long startNs = System.nanoTime();
+        try {
+            ProcessBuilder pb = new ProcessBuilder(cmd);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            Process process = pb.start();
+            run.process = process;
+            if (run.cancelled) {
+                return;
+            }
+
+            byte[] chunk = new byte[CHUNK_FRAMES * LoudnessMeter.CHANNELS * 4];
+            FloatBuffer view = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            float[] samples = new float[CHUNK_FRAMES * LoudnessMeter.CHANNELS];
+            long lastSaveNs = System.nanoTime();
+            long chunkBudgetNs = (long) (100_000_000 / BUSY_SPEED);
+            try (InputStream in = new BufferedInputStream(process.getInputStream(), chunk.length)) {
+                while (!run.cancelled) {
+                    long chunkStartNs = System.nanoTime();
+                    int length = readFully(in, chunk);
+                    int frames = length / (LoudnessMeter.CHANNELS * 4);
+                    for (int i = 0; i < frames * LoudnessMeter.CHANNELS; i++) {
+                        samples[i] = view.get(i);
+                    }
+                    meter.process(samples, frames);
+                    if (length < chunk.length) {
+                        // End of stream: complete only if ffmpeg got there by itself
+                        if (!run.cancelled && process.waitFor() == 0) {
+                            meter.markComplete();
+                        }
+                        break;
+                    }
+                    if (chunkStartNs - lastSaveNs >= SAVE_INTERVAL_NS) {
+                        save(cacheFile, meter);
+                        lastSaveNs = chunkStartNs;
+                    }
+                    if (playbackBusy.getAsBoolean()) {
+                        // 100 ms of audio may take no less than 100 ms / BUSY_SPEED
+                        long restNs = chunkBudgetNs - (System.nanoTime() - chunkStartNs);
+                        if (restNs > 0) {
+                            Thread.sleep(restNs / 1_000_000, (int) (restNs % 1_000_000));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Cancelled; progress is saved below
+        } catch (IOException e) {
+            if (!run.cancelled) {
+                System.err.println("[Loudness] Analysis failed: " + e.getMessage());
+            }
+        } finally {
+            Process running = run.process;
+            if (running != null) {
+                running.destroy();
+                run.process = null;
+            }
+        }
+
+        save(cacheFile, meter);
+        if (meter.isComplete()) {
+            System.out.println("[Loudness] " + file.getName() + ": "
+                + String.format("%.1f LUFS, %.1f dBTP", meter.getIntegratedLoudness(), meter.getTruePeakDb())
+                + " in " + ((System.nanoTime() - startNs) / 1_000_000) + "ms");
+            onComplete.accept(meter);
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n == -1) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static LoudnessMeter load(Path cacheFile) {
+        if (!Files.exists(cacheFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            return LoudnessMeter.read(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void save(Path cacheFile, LoudnessMeter meter) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            // A cancelled run may still be saving the same file
+            Path tmp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                meter.write(out);
+            }
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[Loudness] Could not save analysis: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package os.org;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * EBU R128 / ITU-R BS.1770 loudness meter for 48 kHz stereo float PCM.
+ *
+ * Samples are K-weighted, averaged over 400 ms blocks overlapping by 75% and
+ * the block loudness is counted in a 0.01 LU histogram, from which the gated
+ * integrated loudness is computed at any time. True peak is measured on a 4x
+ * oversampled signal. The histogram, peak and position can be saved and
+ * restored so that analysis resumes where it stopped.
+ */
+public class LoudnessMeter {
+    public static final int SAMPLE_RATE = 48000;
+    public static final int CHANNELS = 2;
+
+    private static final int MAGIC = 0x52313238; // "R128"
+    private static final int SUB_BLOCK_FRAMES = SAMPLE_RATE / 10;
+    private static final int SUB_BLOCKS_PER_BLOCK = 4;
+    private static final double ABSOLUTE_GATE = -70.0;
+    private static final double RELATIVE_GATE = -10.0;
+    private static final double HIST_STEP = 0.01;
+    private static final int HIST_BINS = 7500; // -70 .. +5 LUFS
+
+    // K-weighting at 48 kHz: high shelf then high pass (BS.1770-4, table 1 and 2)
+    private static final double[] SHELF_B = {1.53512485958697, -2.69169618940638, 1.19839281085285};
+    private static final double[] SHELF_A = {-1.69065929318241, 0.73248077421585};
+    private static final double[] HIGHPASS_B = {1.0, -2.0, 1.0};
+    private static final double[] HIGHPASS_A = {-1.99004745483398, 0.99007225036621};
+
+    // True peak: 48-tap windowed-sinc interpolator split into 4 phases
+    private static final int OVERSAMPLING = 4;
+    private static final int TAPS_PER_PHASE = 12;
+    private static final float[][] PHASES = designInterpolator();
+
+    private final double[][] shelfState = new double[CHANNELS][4];
+    private final double[][] highpassState = new double[CHANNELS][4];
+    private final float[][] peakHistory = new float[CHANNELS][TAPS_PER_PHASE];
+    private int historyPos = 0;
+    private final double[] subBlocks = new double[SUB_BLOCKS_PER_BLOCK];
+    private int subBlockCount = 0;
+    private double energySum = 0;
+    private int energyFrames = 0;
+
+    private final long[] histogram = new long[HIST_BINS];
+    private long framesProcessed = 0;
+    private double truePeak = 0;
+    private boolean complete = false;
+
+    /**
+     * Feed interleaved stereo samples in [-1, 1]
+     */
+    public void process(float[] samples, int frames) {
+        for (int f = 0, i = 0; f < frames; f++, i += CHANNELS) {
+            for (int c = 0; c < CHANNELS; c++) {
+                float x = samples[i + c];
+                double y = biquad(shelfState[c], SHELF_B, SHELF_A, x);
+                y = biquad(highpassState[c], HIGHPASS_B, HIGHPASS_A, y);
+                energySum += y * y; // L and R both have weight 1
+                measurePeak(c, x);
+            }
+            historyPos = (historyPos + 1) % TAPS_PER_PHASE;
+
+            if (++energyFrames == SUB_BLOCK_FRAMES) {
+                subBlocks[subBlockCount++ % SUB_BLOCKS_PER_BLOCK] = energySum / SUB_BLOCK_FRAMES;
+                energySum = 0;
+                energyFrames = 0;
+                if (subBlockCount >= SUB_BLOCKS_PER_BLOCK) {
+                    countBlock();
+                }
+            }
+        }
+        framesProcessed += frames;
+    }
+
+    private static double biquad(double[] s, double[] b, double[] a, double x) {
+        double y = b[0] * x + b[1] * s[0] + b[2] * s[1] - a[0] * s[2] - a[1] * s[3];
+        s[1] = s[0];
+        s[0] = x;
+        s[3] = s[2];
+        s[2] = y;
+        return y;
+    }
+
+    private void measurePeak(int channel, float x) {
+        float[] history = peakHistory[channel];
+        history[historyPos] = x;
+        for (float[] phase : PHASES) {
+            double y = 0;
+            int pos = historyPos;
+            for (int k = 0; k < TAPS_PER_PHASE; k++) {
+                y += phase[k] * history[pos];
+                pos = pos == 0 ? TAPS_PER_PHASE - 1 : pos - 1;
+            }
+            double a = Math.abs(y);
+            if (a > truePeak) {
+                truePeak = a;
+            }
+        }
+    }
+
+    private void countBlock() {
+        double energy = 0;
+        for (double subBlock : subBlocks) {
+            energy += subBlock;
+        }
+        double loudness = -0.691 + 10 * Math.log10(energy / SUB_BLOCKS_PER_BLOCK);
+        if (loudness >= ABSOLUTE_GATE) {
+            int bin = (int) ((loudness - ABSOLUTE_GATE) / HIST_STEP);
+            histogram[Math.min(bin, HIST_BINS - 1)]++;
+        }
+    }
+
+    /**
+     * Gated integrated loudness in LUFS, or negative infinity if no block
+     * passed the absolute gate
+     */
+    public double getIntegratedLoudness() {
+        double relativeGate = gatedLoudness(ABSOLUTE_GATE) + RELATIVE_GATE;
+        return gatedLoudness(relativeGate);
+    }
+
+    private double gatedLoudness(double gate) {
+        double energy = 0;
+        long blocks = 0;
+        for (int i = 0; i < HIST_BINS; i++) {
+            double loudness = ABSOLUTE_GATE + (i + 0.5) * HIST_STEP;
+            if (histogram[i] > 0 && loudness >= gate) {
+                energy += histogram[i] * Math.pow(10, (loudness + 0.691) / 10);
+                blocks += histogram[i];
+            }
+        }
+        return blocks == 0 ? Double.NEGATIVE_INFINITY : -0.691 + 10 * Math.log10(energy / blocks);
+    }
+
+    /**
+     * Maximum true peak in dBTP
+     */
+    public double getTruePeakDb() {
+        return truePeak > 0 ? 20 * Math.log10(truePeak) : Double.NEGATIVE_INFINITY;
+    }
+
+    public long getPositionMs() {
+        return framesProcessed * 1000 / SAMPLE_RATE;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void markComplete() {
+        complete = true;
+    }
+
+    /**
+     * Save the histogram, peak and position; filter states are not kept, so a
+     * resumed analysis loses at most one block around the resume point
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeBoolean(complete);
+        out.writeLong(framesProcessed);
+        out.writeDouble(truePeak);
+        int used = 0;
+        for (long count : histogram) {
+            if (count > 0) {
+                used++;
+            }
+        }
+        out.writeInt(used);
+        for (int i = 0; i < HIST_BINS; i++) {
+            if (histogram[i] > 0) {
+                out.writeShort(i);
+                out.writeLong(histogram[i]);
+            }
+        }
+    }
+
+    public static LoudnessMeter read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a loudness state file");
+        }
+        LoudnessMeter meter = new LoudnessMeter();
+        meter.complete = in.readBoolean();
+        meter.framesProcessed = in.readLong();
+        meter.truePeak = in.readDouble();
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int bin = in.readShort();
+            long count = in.readLong();
+            if (bin < 0 || bin >= HIST_BINS) {
+                throw new IOException("Corrupt loudness state");
+            }
+            meter.histogram[bin] = count;
+        }
+        return meter;
+    }
+
+    private static float[][] designInterpolator() {
+        int taps = OVERSAMPLING * TAPS_PER_PHASE;
+        double center = (taps - 1) / 2.0;
+        float[][] phases = new float[OVERSAMPLING][TAPS_PER_PHASE];
+        for (int n = 0; n < taps; n++) {
+            double t = (n - center) / OVERSAMPLING;
+            double sinc = t == 0 ? 1 : Math.sin(Math.PI * t) / (Math.PI * t);
+            double window = 0.5 - 0.5 * Math.cos(2 * Math.PI * (n + 0.5) / taps);
+            phases[n % OVERSAMPLING][n / OVERSAMPLING] = (float) (sinc * window);
+        }
+        return phases;
+    }
+}
@@ -0,0 +1,47 @@
+package os.org;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Locates per-file cache entries under ~/.videoplayer.
+ * Entries are keyed by path, size and modification time, so an edited or
+ * replaced file never picks up stale data.
+ */
+public class MediaCache {
+    private static final Path CACHE_ROOT = Paths.get(
+        System.getProperty("user.home"),
+        ".videoplayer"
+    );
+
+    /**
+     * Cache file for {@code source} in the given area, e.g. {@code index/<key>.kfi}
+     */
+    public static Path fileFor(String area, File source, String extension) {
+        return CACHE_ROOT.resolve(area).resolve(keyFor(source) + extension);
+    }
+
+    public static Path getCacheRoot() {
+        return CACHE_ROOT;
+    }
+
+    static String keyFor(File source) {
+        String identity = source.getAbsolutePath() + "|" + source.length() + "|" + source.lastModified();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(identity.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is mandatory on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
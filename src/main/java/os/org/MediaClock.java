@@ -0,0 +1,21 @@
+package os.org;
+
+/**
+ * Master clock that video presentation is slaved to
+ */
+public interface MediaClock {
+    /**
+     * Current media position in milliseconds
+     */
+    long getPositionMs();
+
+    /**
+     * Restart the clock from the given media position, e.g. on play or seek
+     */
+    void reset(long positionMs);
+
+    /**
+     * Media time per unit of real time, rebasing at the current position
+     */
+    void setRate(double rate);
+}
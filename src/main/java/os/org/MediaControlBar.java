@@ -3,6 +3,9 @@ package os.org;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.plaf.basic.BasicSliderUI;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -14,11 +17,20 @@ public class MediaControlBar extends JPanel {
     private JButton backwardBtn;
     private JSlider timeSlider;
     private JSlider volumeSlider;
+    private JComboBox<String> rateBox;
     private JButton fullScreenBtn;
     private JLabel timeLabel;
 
     private boolean isPlaying = false;
     private Timer timeUpdateTimer;
+    private boolean updatingSlider = false; // Slider moved by playback, not by the user
+
+    // Scrub preview
+    private ThumbnailEngine thumbnailEngine;
+    private JWindow previewWindow;
+    private PreviewPanel previewPanel;
+    private long durationMs = 0;
+    private int previewMouseX = -1;
 
     public MediaControlBar() {
         initComponents();
@@ -69,12 +81,45 @@ public class MediaControlBar extends JPanel {
         timeSlider.addChangeListener(new ChangeListener() {
             @Override
             public void stateChanged(ChangeEvent e) {
-                if (!timeSlider.getValueIsAdjusting() && controller != null) {
+                if (updatingSlider || controller == null) {
+                    return;
+                }
+                if (timeSlider.getValueIsAdjusting()) {
+                    controller.scrubToPosition(timeSlider.getValue());
+                } else {
                     seekToPosition(timeSlider.getValue());
                 }
             }
         });
 
+        MouseAdapter previewListener = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                showPreview(e.getX());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                showPreview(e.getX());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                if (!timeSlider.getValueIsAdjusting()) {
+                    hidePreview();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (!timeSlider.contains(e.getPoint())) {
+                    hidePreview();
+                }
+            }
+        };
+        timeSlider.addMouseListener(previewListener);
+        timeSlider.addMouseMotionListener(previewListener);
+
         centerPanel.add(timeSlider, BorderLayout.CENTER);
         centerPanel.add(timeLabel, BorderLayout.SOUTH);
 
@@ -92,6 +137,17 @@ public class MediaControlBar extends JPanel {
             }
         });
 
+        // Playback speed
+        rateBox = new JComboBox<>(new String[] {"0.25x", "0.5x", "0.75x", "1x", "1.25x", "1.5x", "2x", "3x", "4x"});
+        rateBox.setSelectedItem("1x");
+        rateBox.setToolTipText("Playback speed");
+        rateBox.addActionListener(e -> {
+            if (controller != null) {
+                String item = (String) rateBox.getSelectedItem();
+                controller.setPlaybackRate(Double.parseDouble(item.substring(0, item.length() - 1)));
+            }
+        });
+
         // Fullscreen button
         fullScreenBtn = new JButton("Fullscreen");
         fullScreenBtn.setPreferredSize(new Dimension(100, 30));
@@ -100,6 +156,7 @@ public class MediaControlBar extends JPanel {
 
         rightPanel.add(new JLabel("Volume:"));
         rightPanel.add(volumeSlider);
+        rightPanel.add(rateBox);
         rightPanel.add(fullScreenBtn);
 
         // Add all panels
@@ -161,22 +218,54 @@ public class MediaControlBar extends JPanel {
                 seekForward();
             }
         });
+
+        // Comma/period step one frame back/forward
+        getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke("COMMA"), "stepBack");
+        getActionMap().put("stepBack", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                stepFrame(-1);
+            }
+        });
+
+        getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke("PERIOD"), "stepForward");
+        getActionMap().put("stepForward", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                stepFrame(1);
+            }
+        });
     }
 
     public void setController(VideoPlayerController controller) {
         this.controller = controller;
     }
 
+    public void setThumbnailEngine(ThumbnailEngine engine) {
+        this.thumbnailEngine = engine;
+        // A sheet finishing while the preview is up fills in the blank frame
+        engine.setListener(() -> {
+            if (previewWindow != null && previewWindow.isVisible()) {
+                showPreview(previewMouseX);
+            }
+        });
+    }
+
     public void setVideoLoaded(boolean loaded) {
         playPauseBtn.setEnabled(loaded);
         forwardBtn.setEnabled(loaded);
         backwardBtn.setEnabled(loaded);
         timeSlider.setEnabled(loaded);
         volumeSlider.setEnabled(loaded);
+        rateBox.setEnabled(loaded);
 
         if (!loaded) {
             timeLabel.setText("00:00 / 00:00");
-            timeSlider.setValue(0);
+            setSliderValue(0);
+            durationMs = 0;
+            hidePreview();
         }
     }
 
@@ -194,13 +283,26 @@ public class MediaControlBar extends JPanel {
     public void updateTime(SimpleDuration currentTime, SimpleDuration duration) {
         if (!timeSlider.getValueIsAdjusting()) {
             int progress = (int) (currentTime.toMillis() / (double)duration.toMillis() * 100);
-            timeSlider.setValue(progress);
+            setSliderValue(progress);
         }
 
         updateTimeLabel(currentTime, duration);
     }
 
+    /**
+     * Move the slider without it being taken as a seek
+     */
+    private void setSliderValue(int value) {
+        updatingSlider = true;
+        try {
+            timeSlider.setValue(value);
+        } finally {
+            updatingSlider = false;
+        }
+    }
+
     public void setDuration(SimpleDuration duration) {
+        durationMs = duration.toMillis();
         updateTimeLabel(new SimpleDuration(0), duration);
     }
 
@@ -210,7 +312,7 @@ public class MediaControlBar extends JPanel {
         timeLabel.setText(current + " / " + total);
     }
 
-    private String formatTime(SimpleDuration duration) {
+    static String formatTime(SimpleDuration duration) {
         int minutes = (int) duration.toMinutes();
         int seconds = (int) (duration.toSeconds() % 60);
         return String.format("%02d:%02d", minutes, seconds);
@@ -220,6 +322,85 @@ public class MediaControlBar extends JPanel {
         // Time display is updated through JavaFX callbacks
     }
 
+    /**
+     * Show the keyframe preview for the slider position under the mouse
+     */
+    private void showPreview(int mouseX) {
+        if (!timeSlider.isEnabled() || durationMs <= 0 || mouseX < 0) {
+            return;
+        }
+        previewMouseX = mouseX;
+        int value;
+        if (timeSlider.getUI() instanceof BasicSliderUI) {
+            value = ((BasicSliderUI) timeSlider.getUI()).valueForXPosition(mouseX);
+        } else {
+            value = (int) Math.round(mouseX * 100.0 / Math.max(1, timeSlider.getWidth()));
+        }
+        long timeMs = Math.max(0, Math.min(durationMs, durationMs * value / 100));
+        ThumbnailEngine.Thumbnail thumbnail = thumbnailEngine != null ? thumbnailEngine.getThumbnail(timeMs) : null;
+
+        if (previewWindow == null) {
+            previewWindow = new JWindow(SwingUtilities.getWindowAncestor(this));
+            previewWindow.setFocusableWindowState(false);
+            previewPanel = new PreviewPanel();
+            previewWindow.setContentPane(previewPanel);
+        }
+        previewPanel.set(thumbnail, formatTime(new SimpleDuration(timeMs)));
+        previewWindow.setSize(previewPanel.getPreferredSize());
+
+        Point origin = timeSlider.getLocationOnScreen();
+        int x = origin.x + mouseX - previewWindow.getWidth() / 2;
+        int y = origin.y - previewWindow.getHeight() - 4;
+        previewWindow.setLocation(x, y);
+        if (!previewWindow.isVisible()) {
+            previewWindow.setVisible(true);
+        }
+    }
+
+    private void hidePreview() {
+        previewMouseX = -1;
+        if (previewWindow != null) {
+            previewWindow.setVisible(false);
+        }
+    }
+
+    /**
+     * Thumbnail with the hovered time underneath; just the time while the
+     * sheet for that part of the video is still being generated
+     */
+    private static class PreviewPanel extends JComponent {
+        private static final int LABEL_HEIGHT = 18;
+        private ThumbnailEngine.Thumbnail thumbnail;
+        private String time = "";
+
+        void set(ThumbnailEngine.Thumbnail thumbnail, String time) {
+            this.thumbnail = thumbnail;
+            this.time = time;
+            repaint();
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            if (thumbnail == null) {
+                return new Dimension(60, LABEL_HEIGHT);
+            }
+            return new Dimension(thumbnail.getWidth() + 4, thumbnail.getHeight() + LABEL_HEIGHT + 2);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(new Color(20, 20, 20));
+            g.fillRect(0, 0, getWidth(), getHeight());
+            if (thumbnail != null) {
+                thumbnail.draw(g, 2, 2);
+            }
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Arial", Font.PLAIN, 12));
+            FontMetrics fm = g.getFontMetrics();
+            g.drawString(time, (getWidth() - fm.stringWidth(time)) / 2, getHeight() - (LABEL_HEIGHT - fm.getAscent()) / 2 - 2);
+        }
+    }
+
     private void togglePlayPause() {
         if (controller != null) {
             controller.togglePlayPause();
@@ -238,6 +419,12 @@ public class MediaControlBar extends JPanel {
         }
     }
 
+    private void stepFrame(int frames) {
+        if (controller != null && playPauseBtn.isEnabled()) {
+            controller.stepFrame(frames);
+        }
+    }
+
     private void seekToPosition(int percentage) {
         if (controller != null) {
             controller.seekToPosition(percentage);
@@ -0,0 +1,267 @@
+package os.org;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable result of probing a media file: container info and every stream.
+ * Built from ffprobe's JSON output by {@link MediaProber}.
+ */
+public final class MediaInfo {
+    private final String formatName;
+    private final long durationMs;
+    private final long bitRate;
+    private final List<StreamInfo> streams;
+
+    private MediaInfo(String formatName, long durationMs, long bitRate, List<StreamInfo> streams) {
+        this.formatName = formatName;
+        this.durationMs = durationMs;
+        this.bitRate = bitRate;
+        this.streams = Collections.unmodifiableList(streams);
+    }
+
+    /**
+     * Build from the parsed output of {@code ffprobe -show_format -show_streams -print_format json}
+     */
+    @SuppressWarnings("unchecked")
+    static MediaInfo fromJson(Map<String, Object> json) {
+        Map<String, Object> format = (Map<String, Object>) json.getOrDefault("format", Collections.emptyMap());
+        List<StreamInfo> streams = new ArrayList<>();
+        for (Object stream : (List<Object>) json.getOrDefault("streams", Collections.emptyList())) {
+            streams.add(StreamInfo.fromJson((Map<String, Object>) stream));
+        }
+        return new MediaInfo(
+            string(format, "format_name"),
+            Math.round(decimal(format, "duration") * 1000),
+            Math.round(decimal(format, "bit_rate")),
+            streams
+        );
+    }
+
+    public String getFormatName() {
+        return formatName;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public long getBitRate() {
+        return bitRate;
+    }
+
+    public List<StreamInfo> getStreams() {
+        return streams;
+    }
+
+    /**
+     * First video stream, or null for audio-only files
+     */
+    public StreamInfo getVideoStream() {
+        return firstOfType("video");
+    }
+
+    /**
+     * First audio stream, or null for silent files
+     */
+    public StreamInfo getAudioStream() {
+        return firstOfType("audio");
+    }
+
+    public boolean hasAudio() {
+        return getAudioStream() != null;
+    }
+
+    private StreamInfo firstOfType(String codecType) {
+        for (StreamInfo stream : streams) {
+            if (codecType.equals(stream.getCodecType()) && !stream.isAttachedPicture()) {
+                return stream;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One elementary stream; fields that do not apply to its type are 0 or null
+     */
+    public static final class StreamInfo {
+        private final int index;
+        private final String codecType;
+        private final String codecName;
+        private final int width;
+        private final int height;
+        private final double frameRate;
+        private final String pixelFormat;
+        private final String colorSpace;
+        private final int rotation;
+        private final boolean attachedPicture;
+        private final int sampleRate;
+        private final int channels;
+        private final String channelLayout;
+
+        private StreamInfo(int index, String codecType, String codecName, int width, int height,
+                           double frameRate, String pixelFormat, String colorSpace, int rotation,
+                           boolean attachedPicture, int sampleRate, int channels, String channelLayout) {
+            this.index = index;
+            this.codecType = codecType;
+            this.codecName = codecName;
+            this.width = width;
+            this.height = height;
+            this.frameRate = frameRate;
+            this.pixelFormat = pixelFormat;
+            this.colorSpace = colorSpace;
+            this.rotation = rotation;
+            this.attachedPicture = attachedPicture;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.channelLayout = channelLayout;
+        }
+
+        @SuppressWarnings("unchecked")
+        static StreamInfo fromJson(Map<String, Object> json) {
+            double frameRate = fraction(string(json, "r_frame_rate"));
+            if (frameRate <= 0 || frameRate > 1000) {
+                frameRate = fraction(string(json, "avg_frame_rate"));
+            }
+
+            // Rotation is in the display matrix side data on recent ffprobe, in tags on older ones
+            int rotation = 0;
+            Object sideData = json.get("side_data_list");
+            if (sideData instanceof List) {
+                for (Object entry : (List<Object>) sideData) {
+                    if (entry instanceof Map && ((Map<String, Object>) entry).containsKey("rotation")) {
+                        rotation = (int) decimal((Map<String, Object>) entry, "rotation");
+                    }
+                }
+            }
+            Map<String, Object> tags = (Map<String, Object>) json.getOrDefault("tags", Collections.emptyMap());
+            if (rotation == 0 && tags.containsKey("rotate")) {
+                rotation = (int) decimal(tags, "rotate");
+            }
+
+            Map<String, Object> disposition = (Map<String, Object>) json.getOrDefault("disposition", Collections.emptyMap());
+            return new StreamInfo(
+                (int) decimal(json, "index"),
+                string(json, "codec_type"),
+                string(json, "codec_name"),
+                (int) decimal(json, "width"),
+                (int) decimal(json, "height"),
+                frameRate,
+                string(json, "pix_fmt"),
+                string(json, "color_space"),
+                ((rotation % 360) + 360) % 360,
+                decimal(disposition, "attached_pic") != 0,
+                (int) decimal(json, "sample_rate"),
+                (int) decimal(json, "channels"),
+                string(json, "channel_layout")
+            );
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getCodecType() {
+            return codecType;
+        }
+
+        public String getCodecName() {
+            return codecName;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Width as displayed: ffmpeg applies the rotation when decoding
+         */
+        public int getDisplayWidth() {
+            return rotation == 90 || rotation == 270 ? height : width;
+        }
+
+        public int getDisplayHeight() {
+            return rotation == 90 || rotation == 270 ? width : height;
+        }
+
+        public double getFrameRate() {
+            return frameRate;
+        }
+
+        public String getPixelFormat() {
+            return pixelFormat;
+        }
+
+        public String getColorSpace() {
+            return colorSpace;
+        }
+
+        public int getRotation() {
+            return rotation;
+        }
+
+        public boolean isAttachedPicture() {
+            return attachedPicture;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public int getChannels() {
+            return channels;
+        }
+
+        public String getChannelLayout() {
+            return channelLayout;
+        }
+    }
+
+    private static String string(Map<String, Object> json, String key) {
+        Object value = json.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * ffprobe writes most numbers as strings, e.g. "duration": "12.345"
+     */
+    private static double decimal(Map<String, Object> json, String key) {
+        Object value = json.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parse a rate like "30/1" or "24000/1001"
+     */
+    private static double fraction(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            int slash = value.indexOf('/');
+            if (slash < 0) {
+                return Double.parseDouble(value);
+            }
+            double den = Double.parseDouble(value.substring(slash + 1));
+            return den == 0 ? 0 : Double.parseDouble(value.substring(0, slash)) / den;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
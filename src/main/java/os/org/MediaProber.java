@@ -0,0 +1,80 @@
+package os.org;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Probes media files with a single ffprobe call and caches the JSON output
+ * under ~/.videoplayer/probe, so re-opening a file spawns no process at all
+ */
+public class MediaProber {
+    private static final String CACHE_AREA = "probe";
+
+    /**
+     * Probe the file, from the cache when it is unchanged since the last probe
+     */
+    public static MediaInfo probe(File ffprobeBinary, File videoFile) throws IOException, InterruptedException {
+        return probe(ffprobeBinary, videoFile, process -> { });
+    }
+
+    /**
+     * Probe the file, handing a spawned ffprobe to {@code started} so the
+     * caller can destroy it if the result is no longer wanted
+     */
+    public static MediaInfo probe(File ffprobeBinary, File videoFile, Consumer<Process> started)
+            throws IOException, InterruptedException {
+        Path cacheFile = MediaCache.fileFor(CACHE_AREA, videoFile, ".json");
+        if (Files.exists(cacheFile)) {
+            try {
+                return parse(new String(Files.readAllBytes(cacheFile), StandardCharsets.UTF_8));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("[Probe] Ignoring unreadable cache: " + e.getMessage());
+            }
+        }
+
+        if (ffprobeBinary == null || !ffprobeBinary.exists()) {
+            throw new IOException("ffprobe not found");
+        }
+        ProcessBuilder pb = new ProcessBuilder(
+            ffprobeBinary.getAbsolutePath(),
+            "-v", "error",
+            "-print_format", "json",
+            "-show_format",
+            "-show_streams",
+            videoFile.getAbsolutePath()
+        );
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        Process process = pb.start();
+        started.accept(process);
+        String json = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IOException("ffprobe failed on " + videoFile.getName());
+        }
+
+        MediaInfo info = parse(json);
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            Files.write(tmp, json.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[Probe] Could not cache probe: " + e.getMessage());
+        }
+        return info;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MediaInfo parse(String json) {
+        Object root = JsonParser.parse(json);
+        if (!(root instanceof Map)) {
+            throw new IllegalArgumentException("ffprobe output is not a JSON object");
+        }
+        return MediaInfo.fromJson((Map<String, Object>) root);
+    }
+}
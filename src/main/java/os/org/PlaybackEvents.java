@@ -0,0 +1,154 @@
+package os.org;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for the playback pipeline, so that a stutter in
+ * a recording lines up with GC pauses and safepoints on the same timeline.
+ * Record with {@code -XX:StartFlightRecording:filename=playback.jfr} and look
+ * under "Video Player" in JDK Mission Control, or
+ * {@code jfr print --categories "Video Player" playback.jfr}.
+ *
+ * The per-frame events are created, timed and committed on the reader and
+ * presenter threads; while no recording is running they cost a few
+ * nanoseconds. Stack traces are off as the thread names say where they
+ * come from.
+ */
+public final class PlaybackEvents {
+    private static final String CATEGORY = "Video Player";
+
+    private PlaybackEvents() {
+    }
+
+    @Name("os.org.ProcessSpawn")
+    @Label("FFmpeg Spawn")
+    @Description("Starting an ffmpeg decoder process")
+    @Category({CATEGORY, "Session"})
+    @StackTrace(false)
+    public static final class ProcessSpawn extends Event {
+        @Label("Start Position")
+        @Timespan(Timespan.MILLISECONDS)
+        public long start;
+
+        @Label("Keyframe")
+        @Description("Keyframe the demuxer starts at, -1 if unknown")
+        @Timespan(Timespan.MILLISECONDS)
+        public long keyframe;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+
+        @Label("Pixel Format")
+        public String pixelFormat;
+    }
+
+    @Name("os.org.FirstFrame")
+    @Label("First Frame")
+    @Description("From starting a session, on play or seek, to its first complete frame off the pipe")
+    @Category({CATEGORY, "Session"})
+    @StackTrace(false)
+    public static final class FirstFrame extends Event {
+        @Label("Position")
+        @Timespan(Timespan.MILLISECONDS)
+        public long position;
+
+        @Label("Seek")
+        public boolean seek;
+    }
+
+    @Name("os.org.FrameRead")
+    @Label("Frame Read")
+    @Description("Reading one frame from the decoder pipe, i.e. waiting for ffmpeg")
+    @Category({CATEGORY, "Frame"})
+    @StackTrace(false)
+    public static final class FrameRead extends Event {
+        @Label("Frame")
+        public long frameNumber;
+
+        @Label("Size")
+        @DataAmount
+        public int bytes;
+    }
+
+    @Name("os.org.FrameConvert")
+    @Label("Frame Convert")
+    @Description("Converting one yuv420p frame into the display raster")
+    @Category({CATEGORY, "Frame"})
+    @StackTrace(false)
+    public static final class FrameConvert extends Event {
+        @Label("Frame")
+        public long frameNumber;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+    }
+
+    @Name("os.org.FramePresent")
+    @Label("Frame Present")
+    @Description("From taking a frame off the queue, through waiting for its time, to handing it to the painter")
+    @Category({CATEGORY, "Frame"})
+    @StackTrace(false)
+    public static final class FramePresent extends Event {
+        @Label("Frame")
+        public long frameNumber;
+
+        @Label("Timestamp")
+        @Timespan(Timespan.MILLISECONDS)
+        public long timestamp;
+
+        @Label("Lateness")
+        @Description("How long after its due time the frame was handed over")
+        @Timespan(Timespan.NANOSECONDS)
+        public long lateness;
+
+        @Label("A/V Drift")
+        @Description("Master clock minus the frame's timestamp")
+        @Timespan(Timespan.MILLISECONDS)
+        public long drift;
+
+        @Label("Queue Depth")
+        public int queueDepth;
+    }
+
+    @Name("os.org.FrameDrop")
+    @Label("Frame Drop")
+    @Description("A frame dropped for being too late to show")
+    @Category({CATEGORY, "Frame"})
+    @StackTrace(false)
+    public static final class FrameDrop extends Event {
+        @Label("Frame")
+        public long frameNumber;
+
+        @Label("Timestamp")
+        @Timespan(Timespan.MILLISECONDS)
+        public long timestamp;
+
+        @Label("Lateness")
+        @Timespan(Timespan.NANOSECONDS)
+        public long lateness;
+    }
+
+    @Name("os.org.AudioUnderrun")
+    @Label("Audio Underrun")
+    @Description("The audio line ran dry; the duration is the wait for the block that refilled it")
+    @Category({CATEGORY, "Audio"})
+    @StackTrace(false)
+    public static final class AudioUnderrun extends Event {
+        @Label("Clock Position")
+        @Timespan(Timespan.MILLISECONDS)
+        public long position;
+    }
+}
@@ -0,0 +1,285 @@
+package os.org;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live playback statistics, recorded from the reader and presenter threads
+ * without locks: counters are LongAdders, latencies go into
+ * {@link LatencyHistogram}s in microseconds. Read through JMX
+ * ({@link PlaybackStatsMBean}) or the player's on-screen overlay.
+ */
+public class PlaybackStats implements PlaybackStatsMBean {
+    public static final String OBJECT_NAME = "os.org:type=PlaybackStats";
+    private static final long PIPE_WINDOW_NS = 1_000_000_000L;
+    private static final double DRIFT_SMOOTHING = 0.1;
+
+    private final LongAdder framesDecoded = new LongAdder();
+    private final LongAdder framesPresented = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder audioUnderruns = new LongAdder();
+    private final LongAdder pipeBytes = new LongAdder();
+    private final LatencyHistogram decodeTimeUs = new LatencyHistogram();
+    private final LatencyHistogram presentJitterUs = new LatencyHistogram();
+    private final LatencyHistogram avDriftUs = new LatencyHistogram();
+    private final LatencyHistogram queueDepth = new LatencyHistogram();
+
+    // Written by the presenter only
+    private volatile double avDriftMs = 0;     // Smoothed clock - presented frame time
+    private volatile long maxAvDriftMs = 0;
+
+    // Pipe throughput over the last window, written by the reader only
+    private volatile double pipeMBps = 0;
+    private long windowStartNs = System.nanoTime();
+    private long windowStartBytes = 0;
+
+    private volatile FramePool framePool;
+    private ObjectName registeredName;
+
+    /**
+     * Register with the platform MBean server, replacing a previous instance
+     */
+    public synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+            registeredName = name;
+        } catch (JMException e) {
+            System.err.println("[Stats] Could not register MBean: " + e.getMessage());
+        }
+    }
+
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            // Already gone
+        }
+        registeredName = null;
+    }
+
+    /**
+     * Pool whose queue capacity, starvation and overflow counts are reported
+     */
+    public void setFramePool(FramePool pool) {
+        this.framePool = pool;
+    }
+
+    /**
+     * A frame read off the pipe (and converted), taking {@code decodeNs}
+     */
+    public void recordDecoded(int bytes, long decodeNs) {
+        framesDecoded.increment();
+        decodeTimeUs.record(decodeNs / 1000);
+        pipeBytes.add(bytes);
+
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNs;
+        if (elapsed >= PIPE_WINDOW_NS) {
+            long total = pipeBytes.sum();
+            pipeMBps = (total - windowStartBytes) / (1024.0 * 1024.0) / (elapsed / 1e9);
+            windowStartNs = now;
+            windowStartBytes = total;
+        }
+    }
+
+    /**
+     * A frame handed to the painter
+     *
+     * @param latenessNs how long after its due time the presenter got to it
+     * @param driftMs master clock minus the frame's timestamp
+     * @param depth frames left in the queue
+     */
+    public void recordPresented(long latenessNs, long driftMs, int depth) {
+        framesPresented.increment();
+        presentJitterUs.record(Math.abs(latenessNs) / 1000);
+        avDriftUs.record(Math.abs(driftMs) * 1000);
+        queueDepth.record(depth);
+        avDriftMs += (driftMs - avDriftMs) * DRIFT_SMOOTHING;
+        if (Math.abs(driftMs) > Math.abs(maxAvDriftMs)) {
+            maxAvDriftMs = driftMs;
+        }
+    }
+
+    public void recordDropped() {
+        framesDropped.increment();
+    }
+
+    /**
+     * The audio line ran dry before the next block arrived
+     */
+    public void recordAudioUnderrun() {
+        audioUnderruns.increment();
+    }
+
+    @Override
+    public long getFramesDecoded() {
+        return framesDecoded.sum();
+    }
+
+    @Override
+    public long getFramesPresented() {
+        return framesPresented.sum();
+    }
+
+    @Override
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    @Override
+    public double getDropPercent() {
+        long dropped = framesDropped.sum();
+        long total = dropped + framesPresented.sum();
+        return total == 0 ? 0 : 100.0 * dropped / total;
+    }
+
+    @Override
+    public long getAudioUnderruns() {
+        return audioUnderruns.sum();
+    }
+
+    @Override
+    public double getDecodeTimeMeanMs() {
+        return decodeTimeUs.getMean() / 1000.0;
+    }
+
+    @Override
+    public double getDecodeTimeP50Ms() {
+        return decodeTimeUs.getPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getDecodeTimeP99Ms() {
+        return decodeTimeUs.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getDecodeTimeMaxMs() {
+        return decodeTimeUs.getMax() / 1000.0;
+    }
+
+    @Override
+    public double getPresentJitterP50Ms() {
+        return presentJitterUs.getPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getPresentJitterP99Ms() {
+        return presentJitterUs.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getPresentJitterMaxMs() {
+        return presentJitterUs.getMax() / 1000.0;
+    }
+
+    /**
+     * Smoothed difference between the master clock and the presented frame's timestamp
+     */
+    @Override
+    public double getAvDriftMs() {
+        return avDriftMs;
+    }
+
+    @Override
+    public double getAvDriftP99Ms() {
+        return avDriftUs.getPercentile(99) / 1000.0;
+    }
+
+    /**
+     * Largest drift seen, with its sign
+     */
+    @Override
+    public double getAvDriftMaxMs() {
+        return maxAvDriftMs;
+    }
+
+    @Override
+    public double getQueueDepthMean() {
+        return queueDepth.getMean();
+    }
+
+    @Override
+    public long getQueueDepthP99() {
+        return queueDepth.getPercentile(99);
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        FramePool pool = framePool;
+        return pool != null ? pool.getQueueCapacity() : 0;
+    }
+
+    @Override
+    public long getStarvationCount() {
+        FramePool pool = framePool;
+        return pool != null ? pool.getStarvationCount() : 0;
+    }
+
+    @Override
+    public long getOverflowCount() {
+        FramePool pool = framePool;
+        return pool != null ? pool.getOverflowCount() : 0;
+    }
+
+    @Override
+    public double getPipeMBps() {
+        return pipeMBps;
+    }
+
+    @Override
+    public long getPipeBytes() {
+        return pipeBytes.sum();
+    }
+
+    @Override
+    public void reset() {
+        framesDecoded.reset();
+        framesPresented.reset();
+        framesDropped.reset();
+        audioUnderruns.reset();
+        decodeTimeUs.reset();
+        presentJitterUs.reset();
+        avDriftUs.reset();
+        queueDepth.reset();
+        avDriftMs = 0;
+        maxAvDriftMs = 0;
+    }
+
+    /**
+     * Text lines for the on-screen overlay
+     */
+    public List<String> overlayLines(String clockSource) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "frames  %d shown, %d dropped (%.1f%%)",
+            getFramesPresented(), getFramesDropped(), getDropPercent()));
+        lines.add(String.format(Locale.ROOT, "decode  %.1f ms p50, %.1f ms p99, %.1f ms max",
+            getDecodeTimeP50Ms(), getDecodeTimeP99Ms(), getDecodeTimeMaxMs()));
+        lines.add(String.format(Locale.ROOT, "jitter  %.1f ms p50, %.1f ms p99, %.1f ms max",
+            getPresentJitterP50Ms(), getPresentJitterP99Ms(), getPresentJitterMaxMs()));
+        lines.add(String.format(Locale.ROOT, "a/v     %+.0f ms avg, %.0f ms p99, %+.0f ms max (%s clock)",
+            getAvDriftMs(), getAvDriftP99Ms(), getAvDriftMaxMs(), clockSource));
+        lines.add(String.format(Locale.ROOT, "queue   %.1f avg, %d p99 of %d, starved %d, overflow %d",
+            getQueueDepthMean(), getQueueDepthP99(), getQueueCapacity(), getStarvationCount(), getOverflowCount()));
+        lines.add(String.format(Locale.ROOT, "pipe    %.1f MB/s, audio underruns %d", getPipeMBps(), getAudioUnderruns()));
+        return lines;
+    }
+}
@@ -0,0 +1,56 @@
+package os.org;
+
+/**
+ * JMX view of {@link PlaybackStats}, registered as {@code os.org:type=PlaybackStats}.
+ * Times are in milliseconds.
+ */
+public interface PlaybackStatsMBean {
+    long getFramesDecoded();
+
+    long getFramesPresented();
+
+    long getFramesDropped();
+
+    double getDropPercent();
+
+    long getAudioUnderruns();
+
+    double getDecodeTimeMeanMs();
+
+    double getDecodeTimeP50Ms();
+
+    double getDecodeTimeP99Ms();
+
+    double getDecodeTimeMaxMs();
+
+    double getPresentJitterP50Ms();
+
+    double getPresentJitterP99Ms();
+
+    double getPresentJitterMaxMs();
+
+    double getAvDriftMs();
+
+    double getAvDriftP99Ms();
+
+    double getAvDriftMaxMs();
+
+    double getQueueDepthMean();
+
+    long getQueueDepthP99();
+
+    int getQueueCapacity();
+
+    long getStarvationCount();
+
+    long getOverflowCount();
+
+    double getPipeMBps();
+
+    long getPipeBytes();
+
+    /**
+     * Clear all counters and histograms
+     */
+    void reset();
+}
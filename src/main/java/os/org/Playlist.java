@@ -0,0 +1,72 @@
+package os.org;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered list of files to play and the position in it
+ */
+public class Playlist {
+    private final List<File> items = new ArrayList<>();
+    private int currentIndex = -1;
+
+    public void setItems(List<File> files) {
+        items.clear();
+        items.addAll(files);
+        currentIndex = items.isEmpty() ? -1 : 0;
+    }
+
+    public void add(File file) {
+        items.add(file);
+        if (currentIndex < 0) {
+            currentIndex = 0;
+        }
+    }
+
+    public List<File> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public File getCurrent() {
+        return currentIndex >= 0 ? items.get(currentIndex) : null;
+    }
+
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    public boolean hasNext() {
+        return currentIndex >= 0 && currentIndex + 1 < items.size();
+    }
+
+    public boolean hasPrevious() {
+        return currentIndex > 0;
+    }
+
+    /**
+     * Item after the current one without moving, or null at the end
+     */
+    public File peekNext() {
+        return hasNext() ? items.get(currentIndex + 1) : null;
+    }
+
+    public File next() {
+        if (!hasNext()) {
+            return null;
+        }
+        return items.get(++currentIndex);
+    }
+
+    public File previous() {
+        if (!hasPrevious()) {
+            return null;
+        }
+        return items.get(--currentIndex);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
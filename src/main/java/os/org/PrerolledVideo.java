@@ -0,0 +1,120 @@
+package os.org;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file probed and with its decoder already running, so playback can switch
+ * to it without waiting for ffmpeg: the next playlist item, started from the
+ * beginning, or a standby for a likely seek target. The first frames are read
+ * off the pipe ahead of time; its audio collects in the session's own ring
+ * buffer.
+ */
+public class PrerolledVideo {
+    private static final int BUFFERED_FRAMES = 8;
+    private static final long MAX_BUFFERED_BYTES = 64L * 1024 * 1024;
+
+    private final File file;
+    private final MediaInfo info;
+    private final DecoderSession session;
+    private final List<byte[]> frames = new ArrayList<>();
+    private boolean ended = false;
+
+    private PrerolledVideo(File file, MediaInfo info, DecoderSession session) {
+        this.file = file;
+        this.info = info;
+        this.session = session;
+    }
+
+    /**
+     * Start decoding a probed file from the beginning at the given output size
+     * and format
+     */
+    public static PrerolledVideo start(File ffmpegBinary, File file, MediaInfo info,
+                                       int width, int height, DecodeOptions.PixelFormat pixelFormat)
+            throws IOException {
+        MediaInfo.StreamInfo video = info.getVideoStream();
+        double frameRate = video != null && video.getFrameRate() > 0 ? video.getFrameRate() : 30.0;
+        DecodeOptions options = new DecodeOptions()
+            .videoStream(video != null ? video.getIndex() : -1)
+            .size(width, height)
+            .pixelFormat(pixelFormat)
+            .frameRate(frameRate)
+            .audio(info.hasAudio());
+
+        long startNs = System.nanoTime();
+        PrerolledVideo preroll = start(ffmpegBinary, file, info, options, BUFFERED_FRAMES);
+        System.out.println("[Playlist] Pre-rolled " + file.getName() + ": " + preroll.frames.size()
+            + " frames in " + ((System.nanoTime() - startNs) / 1_000_000) + "ms");
+        return preroll;
+    }
+
+    /**
+     * Start decoding an already probed file with the given options and read
+     * up to {@code maxFrames} frames ahead
+     */
+    public static PrerolledVideo start(File ffmpegBinary, File file, MediaInfo info, DecodeOptions options,
+                                       int maxFrames) throws IOException {
+        DecoderSession session = DecoderSession.start(ffmpegBinary, file.getAbsolutePath(), options);
+        PrerolledVideo preroll = new PrerolledVideo(file, info, session);
+        try {
+            preroll.bufferFrames(maxFrames);
+        } catch (IOException e) {
+            session.destroy();
+            throw e;
+        }
+        return preroll;
+    }
+
+    private void bufferFrames(int maxFrames) throws IOException {
+        int frameSize = session.getOptions().getFrameSize();
+        int count = (int) Math.max(1, Math.min(maxFrames, MAX_BUFFERED_BYTES / frameSize));
+        InputStream in = session.getVideoStream();
+        for (int i = 0; i < count && !ended; i++) {
+            byte[] frame = new byte[frameSize];
+            int total = 0;
+            while (total < frameSize) {
+                int n = in.read(frame, total, frameSize - total);
+                if (n == -1) {
+                    ended = true;
+                    break;
+                }
+                total += n;
+            }
+            if (total == frameSize) {
+                frames.add(frame);
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public MediaInfo getInfo() {
+        return info;
+    }
+
+    public DecoderSession getSession() {
+        return session;
+    }
+
+    /**
+     * Frames read ahead, in the session's pixel format
+     */
+    public List<byte[]> getBufferedFrames() {
+        return frames;
+    }
+
+    public boolean matches(int width, int height, DecodeOptions.PixelFormat pixelFormat) {
+        DecodeOptions options = session.getOptions();
+        return options.getWidth() == width && options.getHeight() == height && options.getPixelFormat() == pixelFormat;
+    }
+
+    public void destroy() {
+        session.destroy();
+    }
+}
@@ -0,0 +1,177 @@
+package os.org;
+
+/**
+ * Chooses how much work the decoder does per second from how the presenter
+ * is coping. Lateness, drops and queue depth are summed over one-second
+ * windows; two overloaded windows in a row step down a level, a run of
+ * healthy windows with a well-filled queue steps back up. Stepping up waits
+ * longer each time the previous step up had to be undone, so a machine on
+ * the edge settles instead of oscillating.
+ *
+ * Fed by the presenter thread only. Each change means restarting decoding
+ * with the new level's settings; the caller does that and calls
+ * {@link #restart()} when the new session's presenter starts.
+ */
+public class QualityController {
+    private static final boolean ADAPTIVE = !"false".equals(System.getProperty("videoplayer.quality.adaptive"));
+    private static final long WINDOW_NS = 1_000_000_000L;
+    private static final int OVERLOAD_WINDOWS = 2;
+    private static final int MIN_HEALTHY_WINDOWS = 10;
+    private static final int MAX_HEALTHY_WINDOWS = 120;
+    private static final long FLAP_NS = 30_000_000_000L;
+    private static final long NEVER = Long.MIN_VALUE;
+    private static final double MAX_DROP_RATIO = 0.05;
+    private static final double MAX_LATE_RATIO = 0.25;
+    private static final double HEALTHY_LATE_RATIO = 0.02;
+    private static final double HEALTHY_QUEUE_FILL = 0.5;
+
+    /**
+     * Decode settings from full quality down; each level keeps the savings of
+     * the ones above it
+     */
+    public enum Level {
+        FULL(1.0, 1, false),
+        SKIP_NONREF(1.0, 1, true),
+        HALF_SCALE(0.5, 1, true),
+        HALF_RATE(0.5, 2, true);
+
+        private final double scale;
+        private final int rateDivisor;
+        private final boolean skipNonReference;
+
+        Level(double scale, int rateDivisor, boolean skipNonReference) {
+            this.scale = scale;
+            this.rateDivisor = rateDivisor;
+            this.skipNonReference = skipNonReference;
+        }
+
+        /**
+         * Output size relative to the size negotiated with the panel
+         */
+        public double getScale() {
+            return scale;
+        }
+
+        /**
+         * Output frame rate divisor
+         */
+        public int getRateDivisor() {
+            return rateDivisor;
+        }
+
+        public boolean isSkipNonReference() {
+            return skipNonReference;
+        }
+    }
+
+    private volatile Level level = Level.FULL;
+    private boolean changePending = false;
+    private int healthyWindowsNeeded = MIN_HEALTHY_WINDOWS;
+    private long lastStepUpNs = NEVER;
+
+    // Current window
+    private long windowStartNs;
+    private boolean settling;
+    private int frames;
+    private int drops;
+    private int late;
+    private long queueDepthSum;
+    private int overloadedWindows;
+    private int healthyWindows;
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Back to full quality, e.g. for a new file
+     */
+    public void reset() {
+        level = Level.FULL;
+        healthyWindowsNeeded = MIN_HEALTHY_WINDOWS;
+        lastStepUpNs = NEVER;
+        restart();
+    }
+
+    /**
+     * A new presenter started: forget the window, and skip the first one,
+     * which holds the session's start-up
+     */
+    public void restart() {
+        changePending = false;
+        overloadedWindows = 0;
+        healthyWindows = 0;
+        settling = true;
+        startWindow(System.nanoTime());
+    }
+
+    /**
+     * @param latenessNs how long after its due time the frame was presented
+     * @return true if the level changed and decoding should restart
+     */
+    public boolean framePresented(long latenessNs, long frameDurationNs, int queueDepth, int queueCapacity) {
+        frames++;
+        queueDepthSum += queueDepth;
+        if (latenessNs > frameDurationNs / 2) {
+            late++;
+        }
+        return evaluate(queueCapacity);
+    }
+
+    /**
+     * @return true if the level changed and decoding should restart
+     */
+    public boolean frameDropped(int queueCapacity) {
+        drops++;
+        return evaluate(queueCapacity);
+    }
+
+    private boolean evaluate(int queueCapacity) {
+        long now = System.nanoTime();
+        if (!ADAPTIVE || changePending || now - windowStartNs < WINDOW_NS) {
+            return false;
+        }
+        int total = frames + drops;
+        boolean overloaded = total > 0
+            && (drops > total * MAX_DROP_RATIO || late > total * MAX_LATE_RATIO);
+        boolean healthy = frames > 0 && drops == 0 && late <= frames * HEALTHY_LATE_RATIO
+            && queueDepthSum >= frames * queueCapacity * HEALTHY_QUEUE_FILL;
+        boolean skip = settling;
+        startWindow(now);
+        settling = false;
+        if (skip) {
+            return false;
+        }
+
+        overloadedWindows = overloaded ? overloadedWindows + 1 : 0;
+        healthyWindows = healthy ? healthyWindows + 1 : 0;
+        Level[] levels = Level.values();
+        if (overloadedWindows >= OVERLOAD_WINDOWS && level.ordinal() < levels.length - 1) {
+            if (lastStepUpNs != NEVER && now - lastStepUpNs < FLAP_NS) {
+                // The last step up did not hold: wait longer before the next one
+                healthyWindowsNeeded = Math.min(MAX_HEALTHY_WINDOWS, healthyWindowsNeeded * 2);
+            }
+            return change(levels[level.ordinal() + 1], "overloaded");
+        }
+        if (healthyWindows >= healthyWindowsNeeded && level.ordinal() > 0) {
+            lastStepUpNs = now;
+            return change(levels[level.ordinal() - 1], "headroom");
+        }
+        return false;
+    }
+
+    private boolean change(Level next, String reason) {
+        System.out.println("[Quality] " + level + " -> " + next + " (" + reason + ")");
+        level = next;
+        changePending = true;
+        return true;
+    }
+
+    private void startWindow(long now) {
+        windowStartNs = now;
+        frames = 0;
+        drops = 0;
+        late = 0;
+        queueDepthSum = 0;
+    }
+}
@@ -0,0 +1,101 @@
+package os.org;
+
+import java.util.function.LongConsumer;
+
+import javax.swing.Timer;
+
+/**
+ * Turns bursts of seek requests into as few decoder restarts as possible.
+ *
+ * A seek after a quiet spell is issued at once; further seeks within
+ * {@code videoplayer.seek.coalesceMs} (default 150) replace each other and
+ * only the last one is issued when the burst ends. While the time slider is
+ * dragged the position is only recorded as a scrub target for previews; the
+ * seek that ends the drag is issued immediately.
+ */
+public class SeekScheduler {
+    private static final int COALESCE_MS = Math.max(1, Integer.getInteger("videoplayer.seek.coalesceMs", 150));
+
+    private final LongConsumer issue;
+    private final Timer quietTimer;
+    private long pendingMs = -1;
+    private long scrubMs = -1;
+    private int coalesced = 0;
+
+    /**
+     * @param issue performs a seek; called on the EDT for coalesced seeks and
+     *              on the requesting thread otherwise
+     */
+    public SeekScheduler(LongConsumer issue) {
+        this.issue = issue;
+        this.quietTimer = new Timer(COALESCE_MS, e -> flush());
+        this.quietTimer.setRepeats(false);
+    }
+
+    /**
+     * Seek to the given time, now or when the current burst ends
+     */
+    public void request(long timeMs) {
+        synchronized (this) {
+            boolean immediate = scrubMs >= 0 || !quietTimer.isRunning();
+            scrubMs = -1;
+            quietTimer.restart();
+            if (!immediate) {
+                pendingMs = timeMs;
+                coalesced++;
+                return;
+            }
+            pendingMs = -1;
+            coalesced = 0;
+        }
+        issue.accept(timeMs);
+    }
+
+    /**
+     * The slider is being dragged to the given time; nothing is decoded until
+     * the drag ends with {@link #request(long)}
+     */
+    public synchronized void scrub(long timeMs) {
+        scrubMs = timeMs;
+        pendingMs = -1;
+    }
+
+    /**
+     * Time being dragged to, or -1 when not scrubbing
+     */
+    public synchronized long getScrubMs() {
+        return scrubMs;
+    }
+
+    /**
+     * Seek waiting for the burst to end, or -1
+     */
+    public synchronized long getPendingMs() {
+        return pendingMs;
+    }
+
+    /**
+     * Forget pending seeks and any scrub, e.g. on stop
+     */
+    public synchronized void cancel() {
+        quietTimer.stop();
+        pendingMs = -1;
+        scrubMs = -1;
+        coalesced = 0;
+    }
+
+    private void flush() {
+        long timeMs;
+        synchronized (this) {
+            timeMs = pendingMs;
+            pendingMs = -1;
+            if (timeMs >= 0 && coalesced > 1) {
+                System.out.println("[Seek] Coalesced " + coalesced + " seeks into one at " + (timeMs / 1000) + "s");
+            }
+            coalesced = 0;
+        }
+        if (timeMs >= 0) {
+            issue.accept(timeMs);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package os.org;
+
+/**
+ * Memoryless soft clipper: linear below the threshold, then a tanh knee that
+ * approaches full scale instead of wrapping or hard clipping
+ */
+public class SoftLimiter implements AudioProcessor {
+    private final float threshold;
+    private final float headroom;
+
+    public SoftLimiter(float threshold) {
+        this.threshold = threshold;
+        this.headroom = 1f - threshold;
+    }
+
+    @Override
+    public void process(float[] samples, int frames, int channels) {
+        int n = frames * channels;
+        for (int i = 0; i < n; i++) {
+            float x = samples[i];
+            float a = Math.abs(x);
+            if (a > threshold) {
+                float limited = threshold + headroom * (float) Math.tanh((a - threshold) / headroom);
+                samples[i] = x < 0 ? -limited : limited;
+            }
+        }
+    }
+}
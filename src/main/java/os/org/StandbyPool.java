@@ -0,0 +1,203 @@
+package os.org;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Warm decoders for the likely next seek targets, the keyframes before the
+ * current position plus and minus the seek step. Each standby is a
+ * {@link PrerolledVideo} started at its keyframe that reads one frame and
+ * then sits blocked on its pipes, so taking it over saves the process start
+ * and the container open; the caller skips from the keyframe to the exact
+ * target as ffmpeg's own trim would.
+ *
+ * Off unless {@code videoplayer.standby=true}. At most
+ * {@code videoplayer.standby.max} processes (default 2) holding about
+ * {@code videoplayer.standby.mb} MB (default 64) between them are kept. A
+ * standby serves any target up to {@code videoplayer.standby.slack.ms}
+ * (default 5000) past its keyframe, so during playback it is replaced only
+ * once the position has moved that far, not at every GOP boundary; it is
+ * dropped when the decode settings change.
+ */
+public class StandbyPool {
+    private static final boolean ENABLED = Boolean.getBoolean("videoplayer.standby");
+    private static final int MAX_PROCESSES = Math.max(0, Integer.getInteger("videoplayer.standby.max", 2));
+    private static final long MAX_BYTES = Math.max(0, Long.getLong("videoplayer.standby.mb", 64)) * 1024 * 1024;
+    private static final long SLACK_MS = Math.max(0, Long.getLong("videoplayer.standby.slack.ms", 5000));
+    private static final int BUFFERED_FRAMES = 1;
+
+    private static final class Standby {
+        final DecodeOptions options;
+        final long bytes;
+        final CompletableFuture<PrerolledVideo> video;
+
+        Standby(DecodeOptions options, long bytes, CompletableFuture<PrerolledVideo> video) {
+            this.options = options;
+            this.bytes = bytes;
+            this.video = video;
+        }
+
+        void destroy() {
+            video.thenAccept(PrerolledVideo::destroy);
+        }
+    }
+
+    private final File ffmpegBinary;
+    private final Map<Long, Standby> standbys = new LinkedHashMap<>(); // By keyframe
+    private String path;
+    private KeyframeIndex index;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Standby-Decoder");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    public StandbyPool(File ffmpegBinary) {
+        this.ffmpegBinary = ffmpegBinary;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED && MAX_PROCESSES > 0;
+    }
+
+    /**
+     * Cheap check for the presenter: do standbys of this file already serve
+     * these seek targets? Targets below 0 are not wanted.
+     */
+    public synchronized boolean isPrepared(String file, long forwardTargetMs, long backwardTargetMs) {
+        return file.equals(path) && covered(forwardTargetMs) && covered(backwardTargetMs);
+    }
+
+    private boolean covered(long targetMs) {
+        if (targetMs < 0) {
+            return true;
+        }
+        for (long keyframeMs : standbys.keySet()) {
+            if (serves(keyframeMs, targetMs)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A standby serves a target within the slack past its keyframe, or further
+     * when its keyframe is still the last one before the target
+     */
+    private boolean serves(long keyframeMs, long targetMs) {
+        return keyframeMs <= targetMs && (targetMs - keyframeMs <= SLACK_MS
+            || (index != null && index.keyframeAtOrBefore(targetMs) == keyframeMs));
+    }
+
+    /**
+     * Keep standbys serving the given targets, decoding with the template's
+     * settings, and drop all others. A target no standby serves gets one at
+     * its keyframe, the forward target first; targets that do not fit the
+     * caps are left out.
+     */
+    public synchronized void prepare(File file, MediaInfo info, DecodeOptions template, KeyframeIndex index,
+                                     long forwardTargetMs, long backwardTargetMs) {
+        if (!isEnabled() || ffmpegBinary == null) {
+            return;
+        }
+        String filePath = file.getAbsolutePath();
+        if (!filePath.equals(path)) {
+            invalidate();
+            path = filePath;
+        }
+        this.index = index;
+        Iterator<Map.Entry<Long, Standby>> it = standbys.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Standby> entry = it.next();
+            long keyframeMs = entry.getKey();
+            boolean wanted = (forwardTargetMs >= 0 && serves(keyframeMs, forwardTargetMs))
+                || (backwardTargetMs >= 0 && serves(keyframeMs, backwardTargetMs));
+            if (!wanted || !entry.getValue().options.sameOutput(template)) {
+                entry.getValue().destroy();
+                it.remove();
+            }
+        }
+        if (forwardTargetMs >= 0 && !covered(forwardTargetMs)) {
+            start(file, info, template, index.keyframeAtOrBefore(forwardTargetMs));
+        }
+        if (backwardTargetMs >= 0 && !covered(backwardTargetMs)) {
+            start(file, info, template, index.keyframeAtOrBefore(backwardTargetMs));
+        }
+    }
+
+    private void start(File file, MediaInfo info, DecodeOptions template, long keyframeMs) {
+        if (keyframeMs < 0 || standbys.containsKey(keyframeMs) || standbys.size() >= MAX_PROCESSES) {
+            return;
+        }
+        long bytes = template.getFrameSize() * (long) BUFFERED_FRAMES
+            + (template.hasAudio() ? DecoderSession.AUDIO_BUFFER_BYTES : 0);
+        long used = 0;
+        for (Standby standby : standbys.values()) {
+            used += standby.bytes;
+        }
+        if (used + bytes > MAX_BYTES) {
+            return;
+        }
+        DecodeOptions options = template.copyAt(keyframeMs, keyframeMs);
+        CompletableFuture<PrerolledVideo> video = CompletableFuture.supplyAsync(() -> {
+            try {
+                return PrerolledVideo.start(ffmpegBinary, file, info, options, BUFFERED_FRAMES);
+            } catch (IOException e) {
+                System.err.println("[Standby] Could not start decoder at " + keyframeMs + "ms: " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, executor);
+        standbys.put(keyframeMs, new Standby(options, bytes, video));
+    }
+
+    /**
+     * Hand over the running standby closest before {@code targetMs} that
+     * serves it with the given settings. The others are kept while they are
+     * still useful; {@link #prepare} drops them once they are not.
+     *
+     * @return the standby, positioned at its keyframe, or null
+     */
+    public synchronized PrerolledVideo take(String file, long targetMs, DecodeOptions options) {
+        if (standbys.isEmpty() || targetMs < 0 || !file.equals(path)) {
+            return null;
+        }
+        long bestKeyframeMs = -1;
+        for (Map.Entry<Long, Standby> entry : standbys.entrySet()) {
+            long keyframeMs = entry.getKey();
+            CompletableFuture<PrerolledVideo> video = entry.getValue().video;
+            if (keyframeMs > bestKeyframeMs && serves(keyframeMs, targetMs)
+                    && video.isDone() && !video.isCompletedExceptionally()
+                    && entry.getValue().options.sameOutput(options)) {
+                bestKeyframeMs = keyframeMs;
+            }
+        }
+        if (bestKeyframeMs < 0) {
+            return null;
+        }
+        return standbys.remove(bestKeyframeMs).video.join();
+    }
+
+    /**
+     * Drop every standby, e.g. because the position moved on
+     */
+    public synchronized void invalidate() {
+        for (Standby standby : standbys.values()) {
+            standby.destroy();
+        }
+        standbys.clear();
+    }
+
+    public synchronized void close() {
+        invalidate();
+        path = null;
+        index = null;
+    }
+}
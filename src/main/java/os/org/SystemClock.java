@@ -0,0 +1,29 @@
+package os.org;
+
+/**
+ * Wall clock based on System.nanoTime(), used for files without audio
+ */
+public class SystemClock implements MediaClock {
+    private volatile long startNanos = System.nanoTime();
+    private volatile long startPositionMs = 0;
+    private volatile double rate = 1.0;
+
+    @Override
+    public long getPositionMs() {
+        return startPositionMs + (long) ((System.nanoTime() - startNanos) / 1_000_000 * rate);
+    }
+
+    @Override
+    public synchronized void reset(long positionMs) {
+        startNanos = System.nanoTime();
+        startPositionMs = positionMs;
+    }
+
+    @Override
+    public synchronized void setRate(double rate) {
+        long positionMs = getPositionMs();
+        startNanos = System.nanoTime();
+        startPositionMs = positionMs;
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,445 @@
+package os.org;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+/**
+ * Background generator of low-resolution scrub previews.
+ *
+ * The timeline is cut into fixed spans, each covered by one sprite sheet of
+ * keyframe thumbnails. A sheet is generated by a single low-priority ffmpeg run
+ * that decodes only keyframes ({@code -skip_frame nokey}) and scales them down,
+ * so scrubbing never touches the playback decoder. Sheets are kept in an LRU
+ * memory cache backed by PNG files under ~/.videoplayer/thumbs. Requests are
+ * served nearest to the most recent scrub position first.
+ */
+public class ThumbnailEngine {
+    private static final String CACHE_AREA = "thumbs";
+    private static final long SHEET_SPAN_MS = 60_000;
+    private static final int GRID = 8;
+    private static final int TILES_PER_SHEET = GRID * GRID;
+    private static final int TILE_WIDTH = 160;
+    private static final int MEMORY_SHEETS = 12;
+    private static final Pattern PTS_TIME = Pattern.compile("pts_time:\\s*(-?[0-9.]+)");
+
+    private final File ffmpegBinary;
+    private final Object lock = new Object();
+    private final Map<Integer, Sheet> memory = new LinkedHashMap<Integer, Sheet>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Sheet> eldest) {
+            return size() > MEMORY_SHEETS;
+        }
+    };
+    private final Set<Integer> pending = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>();
+    private File videoFile;
+    private Path cacheDir;
+    private long durationMs;
+    private int tileWidth;
+    private int tileHeight;
+    private long focusMs;
+    private Runnable listener;
+    private Thread worker;
+    private Process currentProcess;
+
+    public ThumbnailEngine(File ffmpegBinary) {
+        this.ffmpegBinary = ffmpegBinary;
+    }
+
+    /**
+     * Called on the EDT whenever a new sheet becomes available
+     */
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Switch to a new file, dropping everything queued for the previous one
+     */
+    public void open(File file, long durationMs, int videoWidth, int videoHeight) {
+        synchronized (lock) {
+            close();
+            this.videoFile = file;
+            this.durationMs = durationMs;
+            this.cacheDir = MediaCache.fileFor(CACHE_AREA, file, "");
+            this.tileWidth = TILE_WIDTH;
+            this.tileHeight = Math.max(2, (int) Math.round(TILE_WIDTH * (double) videoHeight / Math.max(1, videoWidth)) & ~1);
+        }
+    }
+
+    public void close() {
+        synchronized (lock) {
+            videoFile = null;
+            memory.clear();
+            pending.clear();
+            failed.clear();
+            if (currentProcess != null) {
+                currentProcess.destroyForcibly();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Thumbnail of the keyframe at or before {@code timeMs}, or null if its
+     * sheet is not ready yet; in that case it is queued with top priority
+     */
+    public Thumbnail getThumbnail(long timeMs) {
+        synchronized (lock) {
+            if (videoFile == null || ffmpegBinary == null) {
+                return null;
+            }
+            int index = sheetIndex(timeMs);
+            focusMs = timeMs;
+            Sheet sheet = memory.get(index);
+            // Keep the neighbours warm so that scrubbing across a boundary finds them ready
+            request(index);
+            request(index - 1);
+            request(index + 1);
+            if (sheet == null) {
+                return null;
+            }
+            int tile = sheet.tileAtOrBefore(timeMs);
+            if (tile < 0) {
+                Sheet previous = memory.get(index - 1);
+                if (previous != null && previous.count > 0) {
+                    return previous.thumbnail(previous.count - 1, tileWidth, tileHeight);
+                }
+                tile = sheet.count > 0 ? 0 : -1;
+            }
+            return tile >= 0 ? sheet.thumbnail(tile, tileWidth, tileHeight) : null;
+        }
+    }
+
+    private int sheetIndex(long timeMs) {
+        long clamped = Math.max(0, Math.min(timeMs, Math.max(0, durationMs - 1)));
+        return (int) (clamped / SHEET_SPAN_MS);
+    }
+
+    private void request(int index) {
+        if (index < 0 || index * SHEET_SPAN_MS >= Math.max(durationMs, 1)
+                || memory.containsKey(index) || failed.contains(index) || !pending.add(index)) {
+            return;
+        }
+        if (worker == null || !worker.isAlive()) {
+            worker = new Thread(this::runWorker, "Thumbnail-Worker");
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.start();
+        }
+        lock.notifyAll();
+    }
+
+    private void runWorker() {
+        while (true) {
+            File file;
+            Path dir;
+            int index;
+            int tw;
+            int th;
+            synchronized (lock) {
+                while (pending.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                // Closest to where the user is scrubbing first
+                int focus = sheetIndex(focusMs);
+                index = pending.iterator().next();
+                for (int candidate : pending) {
+                    if (Math.abs(candidate - focus) < Math.abs(index - focus)) {
+                        index = candidate;
+                    }
+                }
+                file = videoFile;
+                dir = cacheDir;
+                tw = tileWidth;
+                th = tileHeight;
+            }
+
+            Sheet sheet = null;
+            try {
+                sheet = loadSheet(dir, index);
+                if (sheet == null) {
+                    sheet = generateSheet(file, index, tw, th);
+                    if (sheet != null) {
+                        saveSheet(dir, index, sheet);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("[Thumbs] Sheet " + index + " failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            synchronized (lock) {
+                if (file != videoFile) {
+                    continue; // A different file was opened meanwhile
+                }
+                pending.remove(index);
+                if (sheet == null) {
+                    failed.add(index);
+                    continue;
+                }
+                memory.put(index, sheet);
+            }
+            Runnable callback = listener;
+            if (callback != null) {
+                SwingUtilities.invokeLater(callback);
+            }
+        }
+    }
+
+    /**
+     * Decode the keyframes of one span at thumbnail size, reading their exact
+     * timestamps from the showinfo filter on stderr. Without -copyts these
+     * start at zero at the -ss position, which like the player's timeline is
+     * relative to the file's start_time, so the span start is added back.
+     */
+    private Sheet generateSheet(File file, int index, int tw, int th) throws IOException, InterruptedException {
+        long startMs = index * SHEET_SPAN_MS;
+        List<String> cmd = new ArrayList<>();
+        cmd.add(ffmpegBinary.getAbsolutePath());
+        cmd.add("-hide_banner");
+        cmd.add("-nostats");
+        cmd.add("-threads");
+        cmd.add("1");
+        cmd.add("-skip_frame");
+        cmd.add("nokey");
+        cmd.add("-ss");
+        cmd.add(String.valueOf(startMs / 1000.0));
+        cmd.add("-i");
+        cmd.add(file.getAbsolutePath());
+        cmd.add("-t");
+        cmd.add(String.valueOf(SHEET_SPAN_MS / 1000.0));
+        cmd.add("-an");
+        cmd.add("-sn");
+        cmd.add("-vf");
+        cmd.add("scale=" + tw + ":" + th + ",showinfo");
+        cmd.add("-vsync");
+        cmd.add("0");
+        cmd.add("-f");
+        cmd.add("rawvideo");
+        cmd.add("-pix_fmt");
+        cmd.add("bgr24");
+        cmd.add("-");
+
+        Process process = new ProcessBuilder(cmd).start();
+        synchronized (lock) {
+            if (file != videoFile) {
+                process.destroyForcibly();
+                return null;
+            }
+            currentProcess = process;
+        }
+
+        BlockingQueue<Long> times = new LinkedBlockingQueue<>();
+        Thread stderrReader = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher m = PTS_TIME.matcher(line);
+                    if (line.contains("showinfo") && m.find()) {
+                        times.add(startMs + Math.round(Double.parseDouble(m.group(1)) * 1000));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Process ended
+            }
+        }, "Thumbnail-Stderr");
+        stderrReader.setDaemon(true);
+        stderrReader.start();
+
+        Sheet sheet = new Sheet(new BufferedImage(tw * GRID, th * GRID, BufferedImage.TYPE_3BYTE_BGR));
+        byte[] tileData = new byte[tw * th * 3];
+        byte[] sheetData = ((DataBufferByte) sheet.image.getRaster().getDataBuffer()).getData();
+        long minSpacingMs = SHEET_SPAN_MS / TILES_PER_SHEET;
+        long lastKeptMs = Long.MIN_VALUE;
+        try (InputStream in = new BufferedInputStream(process.getInputStream(), tileData.length)) {
+            while (readFully(in, tileData)) {
+                Long timeMs = times.poll(5, TimeUnit.SECONDS);
+                if (timeMs == null) {
+                    break;
+                }
+                if (sheet.count == TILES_PER_SHEET || timeMs - lastKeptMs < minSpacingMs) {
+                    continue;
+                }
+                int col = sheet.count % GRID;
+                int row = sheet.count / GRID;
+                int rowBytes = tw * 3;
+                for (int y = 0; y < th; y++) {
+                    int dst = ((row * th + y) * tw * GRID + col * tw) * 3;
+                    System.arraycopy(tileData, y * rowBytes, sheetData, dst, rowBytes);
+                }
+                sheet.times[sheet.count++] = timeMs;
+                lastKeptMs = timeMs;
+            }
+        } finally {
+            process.destroy();
+            synchronized (lock) {
+                if (currentProcess == process) {
+                    currentProcess = null;
+                }
+            }
+        }
+        return sheet;
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n == -1) {
+                return false;
+            }
+            total += n;
+        }
+        return true;
+    }
+
+    private static Sheet loadSheet(Path dir, int index) {
+        Path image = dir.resolve("sheet-" + index + ".png");
+        Path times = dir.resolve("sheet-" + index + ".idx");
+        if (!Files.exists(image) || !Files.exists(times)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(times)))) {
+            BufferedImage png = ImageIO.read(image.toFile());
+            if (png == null) {
+                return null;
+            }
+            // PNGs decode to varying image types; draw into the type we use everywhere
+            BufferedImage bgr = new BufferedImage(png.getWidth(), png.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = bgr.createGraphics();
+            g.drawImage(png, 0, 0, null);
+            g.dispose();
+            Sheet sheet = new Sheet(bgr);
+            sheet.count = Math.min(in.readInt(), TILES_PER_SHEET);
+            for (int i = 0; i < sheet.count; i++) {
+                sheet.times[i] = in.readLong();
+            }
+            return sheet;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void saveSheet(Path dir, int index, Sheet sheet) {
+        try {
+            Files.createDirectories(dir);
+            Path image = dir.resolve("sheet-" + index + ".png");
+            Path times = dir.resolve("sheet-" + index + ".idx");
+            Path tmp = dir.resolve("sheet-" + index + ".idx.tmp");
+            ImageIO.write(sheet.image, "png", image.toFile());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(sheet.count);
+                for (int i = 0; i < sheet.count; i++) {
+                    out.writeLong(sheet.times[i]);
+                }
+            }
+            // The index is written last, so a sheet only counts as cached once complete
+            Files.move(tmp, times, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[Thumbs] Could not cache sheet: " + e.getMessage());
+        }
+    }
+
+    private static class Sheet {
+        final BufferedImage image;
+        final long[] times = new long[TILES_PER_SHEET];
+        int count = 0;
+
+        Sheet(BufferedImage image) {
+            this.image = image;
+        }
+
+        int tileAtOrBefore(long timeMs) {
+            int i = Arrays.binarySearch(times, 0, count, timeMs);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        Thumbnail thumbnail(int tile, int tw, int th) {
+            return new Thumbnail(image, (tile % GRID) * tw, (tile / GRID) * th, tw, th, times[tile]);
+        }
+    }
+
+    /**
+     * One tile of a sprite sheet
+     */
+    public static class Thumbnail {
+        private final BufferedImage sheet;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final long timeMs;
+
+        Thumbnail(BufferedImage sheet, int x, int y, int width, int height, long timeMs) {
+            this.sheet = sheet;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.timeMs = timeMs;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Timestamp of the keyframe shown
+         */
+        public long getTimeMs() {
+            return timeMs;
+        }
+
+        public void draw(Graphics g, int dx, int dy) {
+            draw(g, dx, dy, width, height);
+        }
+
+        /**
+         * Draw scaled to the given size
+         */
+        public void draw(Graphics g, int dx, int dy, int dw, int dh) {
+            g.drawImage(sheet, dx, dy, dx + dw, dy + dh, x, y, x + width, y + height, null);
+        }
+    }
+}
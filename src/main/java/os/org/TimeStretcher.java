@@ -0,0 +1,216 @@
+package os.org;
+
+/**
+ * Pitch-preserving time stretch of interleaved 16-bit little-endian PCM using
+ * WSOLA (waveform similarity overlap-add).
+ *
+ * Output is produced in hops of {@link #HOP} frames. For each hop the input
+ * segment that best continues the previous one is searched within
+ * {@link #SEEK} frames of its ideal position, which advances by
+ * {@code HOP * rate}, and cross-faded in. All buffers are reused; they only
+ * grow while the first blocks pass through.
+ */
+public class TimeStretcher {
+    private static final int HOP = 512;   // ~11.6 ms at 44.1 kHz
+    private static final int SEEK = 256;
+    private static final int CORRELATION_STRIDE = 2;
+
+    private final int channels;
+    private final float[] fadeIn = new float[HOP];
+    private double rate = 1.0;
+
+    private float[] input = new float[0];   // Interleaved samples not yet consumed
+    private int inputFrames = 0;
+    private double analysisPos = 0;          // Ideal start of the next segment, in frames
+    private int previousPos = -1;            // Start of the previously chosen segment
+    private final byte[] carry = new byte[8];
+    private int carryBytes = 0;
+    private byte[] output = new byte[0];
+
+    public TimeStretcher(int channels) {
+        this.channels = channels;
+        for (int i = 0; i < HOP; i++) {
+            double s = Math.sin(Math.PI / 2 * (i + 0.5) / HOP);
+            fadeIn[i] = (float) (s * s);
+        }
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Forget buffered input, e.g. after a seek
+     */
+    public void reset() {
+        inputFrames = 0;
+        analysisPos = 0;
+        previousPos = -1;
+        carryBytes = 0;
+    }
+
+    /**
+     * Feed PCM and stretch as much as the buffered input allows.
+     *
+     * @return number of bytes available from {@link #getOutput()}
+     */
+    public int process(byte[] data, int length) {
+        append(data, length);
+
+        int frameBytes = channels * 2;
+        int maxHops = Math.max(0, (int) ((inputFrames - analysisPos) / (HOP * rate)) + 1);
+        ensureOutput(maxHops * HOP * frameBytes);
+
+        int outBytes = 0;
+        while (true) {
+            int ideal = (int) analysisPos;
+            if (ideal + SEEK + HOP > inputFrames || previousPos + 2 * HOP > inputFrames) {
+                break;
+            }
+            int chosen = previousPos < 0 ? ideal : bestMatch(ideal);
+            outBytes = emitHop(chosen, outBytes);
+            previousPos = chosen;
+            analysisPos += HOP * rate;
+        }
+        compact();
+        return outBytes;
+    }
+
+    /**
+     * Stretched PCM from the last {@link #process} call; reused between calls
+     */
+    public byte[] getOutput() {
+        return output;
+    }
+
+    private void append(byte[] data, int length) {
+        int frameBytes = channels * 2;
+        int total = carryBytes + length;
+        int frames = total / frameBytes;
+        ensureInput(inputFrames + frames);
+
+        int dst = inputFrames * channels;
+        int src = 0;
+        if (carryBytes > 0 && frames > 0) {
+            // Complete the frame split across the previous block
+            int need = frameBytes - carryBytes;
+            System.arraycopy(data, 0, carry, carryBytes, need);
+            for (int i = 0; i < frameBytes; i += 2) {
+                input[dst++] = (short) ((carry[i + 1] << 8) | (carry[i] & 0xFF));
+            }
+            src = need;
+            frames--;
+            carryBytes = 0;
+            inputFrames++;
+        }
+        int end = src + frames * frameBytes;
+        for (int i = src; i < end; i += 2) {
+            input[dst++] = (short) ((data[i + 1] << 8) | (data[i] & 0xFF));
+        }
+        inputFrames += frames;
+        int rest = length - end;
+        if (rest > 0) {
+            System.arraycopy(data, end, carry, carryBytes, rest);
+            carryBytes += rest;
+        }
+    }
+
+    /**
+     * Offset within the search range whose segment best matches the natural
+     * continuation of the previous segment (normalised cross-correlation,
+     * channels summed and subsampled to keep the search cheap)
+     */
+    private int bestMatch(int ideal) {
+        int target = (previousPos + HOP) * channels;
+        int from = Math.max(0, ideal - SEEK);
+        int to = ideal + SEEK;
+        int best = ideal;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int step = CORRELATION_STRIDE * channels;
+        for (int candidate = from; candidate <= to; candidate += CORRELATION_STRIDE) {
+            int base = candidate * channels;
+            double dot = 0;
+            double energy = 1e-9;
+            for (int i = 0; i < HOP * channels; i += step) {
+                float a = input[target + i] + input[target + i + channels - 1];
+                float b = input[base + i] + input[base + i + channels - 1];
+                dot += a * b;
+                energy += b * b;
+            }
+            double score = dot / Math.sqrt(energy);
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private int emitHop(int chosen, int outBytes) {
+        int next = chosen * channels;
+        byte[] out = output;
+        int o = outBytes;
+        if (previousPos < 0) {
+            for (int i = 0; i < HOP * channels; i++) {
+                o = putSample(out, o, input[next + i]);
+            }
+            return o;
+        }
+        int tail = (previousPos + HOP) * channels;
+        for (int f = 0; f < HOP; f++) {
+            float w = fadeIn[f];
+            for (int c = 0; c < channels; c++) {
+                int i = f * channels + c;
+                o = putSample(out, o, input[tail + i] * (1 - w) + input[next + i] * w);
+            }
+        }
+        return o;
+    }
+
+    private static int putSample(byte[] out, int o, float value) {
+        int s = Math.round(value);
+        if (s > Short.MAX_VALUE) {
+            s = Short.MAX_VALUE;
+        } else if (s < Short.MIN_VALUE) {
+            s = Short.MIN_VALUE;
+        }
+        out[o] = (byte) s;
+        out[o + 1] = (byte) (s >> 8);
+        return o + 2;
+    }
+
+    /**
+     * Drop input that neither the next search nor the cross-fade can reach
+     */
+    private void compact() {
+        int keepFrom = Math.min((int) analysisPos - SEEK, previousPos < 0 ? Integer.MAX_VALUE : previousPos + HOP);
+        keepFrom = Math.min(keepFrom, inputFrames);
+        if (keepFrom <= 0) {
+            return;
+        }
+        System.arraycopy(input, keepFrom * channels, input, 0, (inputFrames - keepFrom) * channels);
+        inputFrames -= keepFrom;
+        analysisPos -= keepFrom;
+        if (previousPos >= 0) {
+            previousPos -= keepFrom;
+        }
+    }
+
+    private void ensureInput(int frames) {
+        if (input.length < frames * channels) {
+            float[] grown = new float[Math.max(frames * channels, input.length * 2)];
+            System.arraycopy(input, 0, grown, 0, inputFrames * channels);
+            input = grown;
+        }
+    }
+
+    private void ensureOutput(int bytes) {
+        if (output.length < bytes) {
+            output = new byte[Math.max(bytes, output.length * 2)];
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package os.org;
+
+import java.awt.AWTException;
+import java.awt.AlphaComposite;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.Image;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Active rendering surface, used with {@code videoplayer.render=active}.
+ *
+ * The presenter draws each frame straight into a {@link BufferStrategy} and
+ * shows it, instead of asking the RepaintManager to paint at some later
+ * point. Each new frame is uploaded once into a {@link VolatileImage} and
+ * scaled from there, so the scaling runs on the accelerated pipeline and
+ * redrawing the same frame uploads nothing. In exclusive full screen the
+ * strategy is recreated to flip pages, which the pipelines present on the
+ * vertical blank; windowed, AWT offers no public vsync switch and the
+ * strategy blits.
+ */
+public class VideoCanvas extends Canvas {
+    public static final boolean ENABLED = "active".equals(System.getProperty("videoplayer.render"));
+    private static final int BUFFERS = 2;
+
+    private final Consumer<Graphics2D> painter;
+    private final Object renderLock = new Object();
+    private BufferStrategy strategy;
+    private boolean strategyFullScreen;
+
+    // Last frame uploaded to the surface
+    private VolatileImage frameSurface;
+    private VideoFrame uploadedFrame;
+    private long uploadedFrameNumber;
+    private long uploadedTimestampMs;
+
+    /**
+     * @param painter draws the whole picture, on the presenter thread or the EDT
+     */
+    public VideoCanvas(Consumer<Graphics2D> painter) {
+        this.painter = painter;
+        setBackground(Color.BLACK);
+    }
+
+    @Override
+    public void update(Graphics g) {
+        // No clearing: the back buffer is filled on every render
+        render();
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        render();
+    }
+
+    @Override
+    public void removeNotify() {
+        synchronized (renderLock) {
+            strategy = null;
+            if (frameSurface != null) {
+                frameSurface.flush();
+                frameSurface = null;
+            }
+            uploadedFrame = null;
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Draw the current picture into the back buffer and show it
+     */
+    public void render() {
+        synchronized (renderLock) {
+            if (!isDisplayable() || getWidth() <= 0 || getHeight() <= 0) {
+                return;
+            }
+            try {
+                BufferStrategy bs = obtainStrategy();
+                do {
+                    do {
+                        Graphics2D g = (Graphics2D) bs.getDrawGraphics();
+                        try {
+                            g.setColor(getBackground());
+                            g.fillRect(0, 0, getWidth(), getHeight());
+                            painter.accept(g);
+                        } finally {
+                            g.dispose();
+                        }
+                    } while (bs.contentsRestored());
+                    bs.show();
+                } while (bs.contentsLost());
+                if (!strategyFullScreen) {
+                    // Push the blit out now rather than with the next batch
+                    Toolkit.getDefaultToolkit().sync();
+                }
+            } catch (IllegalStateException e) {
+                // The peer went away, e.g. while switching to full screen
+                strategy = null;
+            }
+        }
+    }
+
+    /**
+     * The frame as an accelerated image, uploaded only when it changed; the
+     * frame's own image if no surface can be had. Called by the painter.
+     */
+    public Image accelerated(VideoFrame frame) {
+        BufferedImage image = frame.getImage();
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            return image;
+        }
+        boolean changed = frame != uploadedFrame || frame.getFrameNumber() != uploadedFrameNumber
+            || frame.getTimestampMs() != uploadedTimestampMs;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (frameSurface == null || frameSurface.getWidth() != image.getWidth()
+                    || frameSurface.getHeight() != image.getHeight()) {
+                if (frameSurface != null) {
+                    frameSurface.flush();
+                }
+                frameSurface = gc.createCompatibleVolatileImage(image.getWidth(), image.getHeight());
+                changed = true;
+            }
+            int status = frameSurface.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                frameSurface.flush();
+                frameSurface = null;
+                continue;
+            }
+            if (changed || status == VolatileImage.IMAGE_RESTORED) {
+                Graphics2D g = frameSurface.createGraphics();
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(image, 0, 0, null);
+                g.dispose();
+                uploadedFrame = frame;
+                uploadedFrameNumber = frame.getFrameNumber();
+                uploadedTimestampMs = frame.getTimestampMs();
+            }
+            if (!frameSurface.contentsLost()) {
+                return frameSurface;
+            }
+            changed = true;
+        }
+        return image;
+    }
+
+    /**
+     * The current strategy, recreated when the canvas moves in or out of
+     * exclusive full screen
+     */
+    private BufferStrategy obtainStrategy() {
+        boolean fullScreen = isExclusiveFullScreen();
+        if (strategy == null || fullScreen != strategyFullScreen) {
+            if (fullScreen) {
+                try {
+                    createBufferStrategy(BUFFERS, new BufferCapabilities(new ImageCapabilities(true),
+                        new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED));
+                } catch (AWTException e) {
+                    createBufferStrategy(BUFFERS);
+                }
+            } else {
+                createBufferStrategy(BUFFERS);
+            }
+            strategy = getBufferStrategy();
+            strategyFullScreen = fullScreen;
+            System.out.println("[Video] Active rendering, "
+                + (strategy.getCapabilities().isPageFlipping() ? "page flipping" : "blitting")
+                + (fullScreen ? " in exclusive full screen" : ""));
+        }
+        return strategy;
+    }
+
+    private boolean isExclusiveFullScreen() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            return false;
+        }
+        GraphicsDevice device = gc.getDevice();
+        return device.isFullScreenSupported()
+            && device.getFullScreenWindow() == SwingUtilities.getWindowAncestor(this);
+    }
+}
@@ -0,0 +1,59 @@
+package os.org;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Preallocated video frame that the decoder writes into directly.
+ * Frames are owned by a {@link FramePool} and move through its
+ * decode -> queued -> ready -> displayed lifecycle.
+ */
+public class VideoFrame {
+    enum State { FREE, DECODING, QUEUED, PENDING, READY, DISPLAYED }
+
+    private final BufferedImage image;
+    private final byte[] data;
+    private long frameNumber;
+    private long timestampMs;
+
+    // Guarded by the owning pool's lock
+    State state = State.FREE;
+    long epoch;
+
+    VideoFrame(int width, int height) {
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        this.data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Backing bytes of the image raster in bgr24 layout
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    public long getFrameNumber() {
+        return frameNumber;
+    }
+
+    public long getTimestampMs() {
+        return timestampMs;
+    }
+
+    public void setPosition(long frameNumber, long timestampMs) {
+        this.frameNumber = frameNumber;
+        this.timestampMs = timestampMs;
+    }
+}
@@ -54,7 +54,7 @@ public class VideoPlayerApp extends JFrame {
 
         // File menu
         JMenu fileMenu = new JMenu("File");
-        JMenuItem openItem = new JMenuItem("Open Video");
+        JMenuItem openItem = new JMenuItem("Open Video(s)");
         openItem.addActionListener(e -> controller.openVideoFile());
 
         JMenuItem exitItem = new JMenuItem("Exit");
@@ -73,10 +73,27 @@ public class VideoPlayerApp extends JFrame {
         fullScreenItem.addActionListener(e ->
                 controller.toggleFullScreen(fullScreenItem.isSelected()));
 
+        JCheckBoxMenuItem statsItem = new JCheckBoxMenuItem("Playback Statistics");
+        statsItem.setSelected(ffmpegPlayerPanel.isStatsOverlayVisible());
+        statsItem.addActionListener(e ->
+                controller.showPlaybackStats(statsItem.isSelected()));
+
         viewMenu.add(fullScreenItem);
+        viewMenu.add(statsItem);
+
+        // Playlist menu
+        JMenu playlistMenu = new JMenu("Playlist");
+        JMenuItem nextItem = new JMenuItem("Next");
+        nextItem.addActionListener(e -> controller.nextVideo());
+        JMenuItem previousItem = new JMenuItem("Previous");
+        previousItem.addActionListener(e -> controller.previousVideo());
+
+        playlistMenu.add(previousItem);
+        playlistMenu.add(nextItem);
 
         menuBar.add(fileMenu);
         menuBar.add(viewMenu);
+        menuBar.add(playlistMenu);
 
         setJMenuBar(menuBar);
     }
@@ -86,6 +103,11 @@ public class VideoPlayerApp extends JFrame {
     }
 
     public static void main(String[] args) {
+        // Headless decode benchmark: no window, JSON on stdout
+        if (args.length > 0 && args[0].equals("--bench")) {
+            System.exit(HeadlessBenchmark.run(java.util.Arrays.copyOfRange(args, 1, args.length)));
+        }
+
         // Load native VLC libraries from bundled resources
         NativeLibraryLoader.loadNatives();
         
@@ -1,24 +1,46 @@
 package os.org;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 public class VideoPlayerController {
     private final VideoPlayerApp app;
     private final VideoPlayerModel model;
     private final IVideoPlayer videoPlayer;
     private final FullScreenHandler fullScreenHandler;
+    private final Playlist playlist = new Playlist();
 
     public VideoPlayerController(VideoPlayerApp app, MediaControlBar controlBar, IVideoPlayer videoPlayer, VideoPlayerModel model) {
         this.app = app;
         this.videoPlayer = videoPlayer;
         this.model = model;
         this.fullScreenHandler = new FullScreenHandler(app);
+        videoPlayer.setPlaybackListener(new IVideoPlayer.PlaybackListener() {
+            @Override
+            public void videoStarted(File file) {
+                // The player already switched to the pre-rolled item
+                playlist.next();
+                model.setCurrentFile(file);
+                videoPlayer.setNextVideo(playlist.peekNext());
+            }
+
+            @Override
+            public void playbackEnded() {
+                if (playlist.hasNext()) {
+                    loadVideo(playlist.next());
+                }
+            }
+        });
     }
 
     public void openVideoFile() {
         JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setMultiSelectionEnabled(true);
         fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
             @Override
             public boolean accept(File f) {
@@ -39,25 +61,52 @@ public class VideoPlayerController {
 
         int result = fileChooser.showOpenDialog(app);
         if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            loadVideo(file);
+            File[] files = fileChooser.getSelectedFiles();
+            if (files.length == 0 && fileChooser.getSelectedFile() != null) {
+                files = new File[] {fileChooser.getSelectedFile()};
+            }
+            if (files.length == 0) {
+                return;
+            }
+            playlist.setItems(Arrays.asList(files));
+            loadVideo(playlist.getCurrent());
+        }
+    }
+
+    public void nextVideo() {
+        File next = playlist.next();
+        if (next != null) {
+            loadVideo(next);
+        }
+    }
+
+    public void previousVideo() {
+        File previous = playlist.previous();
+        if (previous != null) {
+            loadVideo(previous);
         }
     }
 
     private void loadVideo(File file) {
-        try {
-            System.out.println("Loading video: " + file.getAbsolutePath());
-            model.setCurrentFile(file);
-            videoPlayer.loadVideo(file);
-            videoPlayer.play();
-            
-        } catch (Exception e) {
+        System.out.println("Loading video: " + file.getAbsolutePath());
+        model.setCurrentFile(file);
+        videoPlayer.loadVideo(file).whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                videoPlayer.play();
+                videoPlayer.setNextVideo(playlist.peekNext());
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                // Another file was opened meanwhile
+                return;
+            }
             JOptionPane.showMessageDialog(app,
-                    "Error loading video: " + e.getMessage(),
+                    "Error loading video: " + cause.getMessage(),
                     "Error", JOptionPane.ERROR_MESSAGE);
-            System.err.println("Exception: " + e);
-            e.printStackTrace();
-        }
+            System.err.println("Exception: " + cause);
+            cause.printStackTrace();
+        }));
     }
 
     public void playVideo() {
@@ -80,22 +129,41 @@ public class VideoPlayerController {
         videoPlayer.seekBackward();
     }
 
+    public void stepFrame(int frames) {
+        videoPlayer.stepFrame(frames);
+    }
+
+    public void setPlaybackRate(double rate) {
+        videoPlayer.setPlaybackRate(rate);
+    }
+
     public void setVolume(double volume) {
         videoPlayer.setVolume((int) volume);
         model.setVolume(volume);
     }
 
     public void seekToPosition(int percentage) {
+        videoPlayer.seek(positionMillis(percentage));
+    }
+
+    public void scrubToPosition(int percentage) {
+        videoPlayer.scrub(positionMillis(percentage));
+    }
+
+    private long positionMillis(int percentage) {
         SimpleDuration duration = model.getDuration();
         double totalMillis = duration.toMillis();
-        long newMillis = (long) ((percentage / 100.0) * totalMillis);
-        videoPlayer.seek(newMillis);
+        return (long) ((percentage / 100.0) * totalMillis);
     }
 
     public void toggleFullScreen(boolean fullScreen) {
         fullScreenHandler.toggleFullScreen(fullScreen);
     }
 
+    public void showPlaybackStats(boolean visible) {
+        videoPlayer.setStatsOverlayVisible(visible);
+    }
+
     public void dispose() {
         videoPlayer.dispose();
     }
@@ -0,0 +1,180 @@
+package os.org;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Converts planar yuv420p frames into bgr24 rasters in Java.
+ *
+ * Transferring yuv420p over the pipe costs 1.5 bytes per pixel instead of 3
+ * and takes the colour conversion out of ffmpeg's single swscale thread. The
+ * frame is split into bands of rows that run on a ForkJoin pool. Within a row
+ * the chroma is first upsampled into scratch arrays, so that the arithmetic
+ * loop is a plain element-wise loop over int arrays the JIT can auto-vectorize.
+ */
+public class YuvConverter {
+    /**
+     * Limited-range YCbCr to RGB matrices, in 16.16 fixed point
+     */
+    public enum Matrix {
+        BT601(1.164, 1.596, -0.392, -0.813, 2.017),
+        BT709(1.164, 1.793, -0.213, -0.533, 2.112);
+
+        final int yScale;
+        final int vToR;
+        final int uToG;
+        final int vToG;
+        final int uToB;
+
+        Matrix(double y, double vr, double ug, double vg, double ub) {
+            this.yScale = fixed(y);
+            this.vToR = fixed(vr);
+            this.uToG = fixed(ug);
+            this.vToG = fixed(vg);
+            this.uToB = fixed(ub);
+        }
+
+        private static int fixed(double value) {
+            return (int) Math.round(value * (1 << 16));
+        }
+
+        /**
+         * Matrix from the {@code videoplayer.yuv.matrix} property; "auto" follows
+         * the stream's tagged colour space and otherwise picks BT.709 for HD
+         * sources and BT.601 for SD ones
+         */
+        public static Matrix forSource(String colorSpace, int sourceHeight) {
+            String configured = System.getProperty("videoplayer.yuv.matrix", "auto");
+            if (configured.equalsIgnoreCase("bt601")) {
+                return BT601;
+            } else if (configured.equalsIgnoreCase("bt709")) {
+                return BT709;
+            }
+            if ("bt709".equals(colorSpace)) {
+                return BT709;
+            } else if ("smpte170m".equals(colorSpace) || "bt470bg".equals(colorSpace)) {
+                return BT601;
+            }
+            return sourceHeight >= 720 ? BT709 : BT601;
+        }
+    }
+
+    private static final int MIN_BAND_ROWS = 32;
+    private static final ForkJoinPool CONVERT_POOL =
+        new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static final ThreadLocal<int[][]> SCRATCH = ThreadLocal.withInitial(() -> new int[5][0]);
+
+    private final ForkJoinPool pool;
+
+    public YuvConverter() {
+        this(CONVERT_POOL);
+    }
+
+    public YuvConverter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Bytes of one yuv420p frame; width and height must be even
+     */
+    public static int frameSize(int width, int height) {
+        return width * height * 3 / 2;
+    }
+
+    /**
+     * Convert a whole yuv420p frame into a bgr24 raster using the pool
+     */
+    public void convert(byte[] yuv, byte[] bgr, int width, int height, Matrix matrix) {
+        pool.invoke(new Band(yuv, bgr, width, height, matrix, 0, height));
+    }
+
+    /**
+     * Convert rows [rowStart, rowEnd) on the calling thread; rowStart must be even
+     */
+    public static void convertRows(byte[] yuv, byte[] bgr, int width, int height, Matrix matrix,
+                                   int rowStart, int rowEnd) {
+        int[][] scratch = SCRATCH.get();
+        if (scratch[0].length < width) {
+            for (int i = 0; i < scratch.length; i++) {
+                scratch[i] = new int[width];
+            }
+        }
+        int[] uRow = scratch[0];
+        int[] vRow = scratch[1];
+        int[] r = scratch[2];
+        int[] g = scratch[3];
+        int[] b = scratch[4];
+
+        int chromaWidth = width / 2;
+        int uPlane = width * height;
+        int vPlane = uPlane + chromaWidth * (height / 2);
+        int yScale = matrix.yScale;
+        int vToR = matrix.vToR;
+        int uToG = matrix.uToG;
+        int vToG = matrix.vToG;
+        int uToB = matrix.uToB;
+
+        for (int row = rowStart; row < rowEnd; row++) {
+            // Chroma is shared by pairs of rows and columns: upsample it once per row pair
+            if (row == rowStart || (row & 1) == 0) {
+                int chromaRow = (row / 2) * chromaWidth;
+                for (int x = 0; x < width; x++) {
+                    uRow[x] = (yuv[uPlane + chromaRow + (x >> 1)] & 0xFF) - 128;
+                    vRow[x] = (yuv[vPlane + chromaRow + (x >> 1)] & 0xFF) - 128;
+                }
+            }
+
+            // Element-wise arithmetic over int arrays: the vectorizable part
+            int yRow = row * width;
+            for (int x = 0; x < width; x++) {
+                int y = ((yuv[yRow + x] & 0xFF) - 16) * yScale + (1 << 15);
+                int u = uRow[x];
+                int v = vRow[x];
+                r[x] = Math.min(255, Math.max(0, (y + vToR * v) >> 16));
+                g[x] = Math.min(255, Math.max(0, (y + uToG * u + vToG * v) >> 16));
+                b[x] = Math.min(255, Math.max(0, (y + uToB * u) >> 16));
+            }
+
+            int out = yRow * 3;
+            for (int x = 0; x < width; x++) {
+                bgr[out++] = (byte) b[x];
+                bgr[out++] = (byte) g[x];
+                bgr[out++] = (byte) r[x];
+            }
+        }
+    }
+
+    private static class Band extends RecursiveAction {
+        private final byte[] yuv;
+        private final byte[] bgr;
+        private final int width;
+        private final int height;
+        private final Matrix matrix;
+        private final int rowStart;
+        private final int rowEnd;
+
+        Band(byte[] yuv, byte[] bgr, int width, int height, Matrix matrix, int rowStart, int rowEnd) {
+            this.yuv = yuv;
+            this.bgr = bgr;
+            this.width = width;
+            this.height = height;
+            this.matrix = matrix;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = rowEnd - rowStart;
+            if (rows <= MIN_BAND_ROWS * 2) {
+                convertRows(yuv, bgr, width, height, matrix, rowStart, rowEnd);
+                return;
+            }
+            // Split on an even row so each band starts on a chroma row boundary
+            int mid = rowStart + ((rows / 2) & ~1);
+            invokeAll(new Band(yuv, bgr, width, height, matrix, rowStart, mid),
+                      new Band(yuv, bgr, width, height, matrix, mid, rowEnd));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package os.org;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class GopCacheTest {
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 2;
+    private static final int FRAMES = 120;
+
+    @ParameterizedTest
+    @ValueSource(doubles = {24000.0 / 1001, 30000.0 / 1001, 30.0})
+    void stepsForwardOneFrameAtATime(double frameRate) {
+        GopCache cache = cacheWithGop(frameRate);
+        VideoFrame shown = cache.find(0, WIDTH, HEIGHT);
+        for (int n = 1; n < FRAMES; n++) {
+            shown = step(cache, shown, 1, frameRate);
+            assertEquals(n, shown.getFrameNumber(), "step from frame " + (n - 1));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {24000.0 / 1001, 30000.0 / 1001, 30.0})
+    void stepsBackwardOneFrameAtATime(double frameRate) {
+        GopCache cache = cacheWithGop(frameRate);
+        VideoFrame shown = cache.find(FramePacing.frameTimeMs(0, FRAMES - 1, frameRate), WIDTH, HEIGHT);
+        for (int n = FRAMES - 2; n >= 0; n--) {
+            shown = step(cache, shown, -1, frameRate);
+            assertEquals(n, shown.getFrameNumber(), "step from frame " + (n + 1));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {24000.0 / 1001, 30000.0 / 1001, 30.0})
+    void stepsSeveralFramesAtOnce(double frameRate) {
+        GopCache cache = cacheWithGop(frameRate);
+        VideoFrame shown = cache.find(0, WIDTH, HEIGHT);
+        shown = step(cache, shown, 10, frameRate);
+        assertEquals(10, shown.getFrameNumber());
+        shown = step(cache, shown, -7, frameRate);
+        assertEquals(3, shown.getFrameNumber());
+    }
+
+    private static VideoFrame step(GopCache cache, VideoFrame shown, int frames, double frameRate) {
+        long lookupMs = FramePacing.stepLookupMs(shown.getTimestampMs(), frames, frameRate);
+        VideoFrame frame = cache.find(lookupMs, WIDTH, HEIGHT);
+        assertNotNull(frame, "no frame at " + lookupMs + "ms");
+        return frame;
+    }
+
+    /**
+     * One GOP stamped the way the player stamps decoded frames
+     */
+    private static GopCache cacheWithGop(double frameRate) {
+        GopCache cache = new GopCache(64L * 1024 * 1024);
+        List<VideoFrame> frames = new ArrayList<>();
+        for (int n = 0; n < FRAMES; n++) {
+            VideoFrame frame = cache.obtainFrame(WIDTH, HEIGHT);
+            frame.setPosition(n, FramePacing.frameTimeMs(0, n, frameRate));
+            frames.add(frame);
+        }
+        cache.put(0, FramePacing.frameTimeMs(0, FRAMES, frameRate), frames);
+        return cache;
+    }
+}